@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Load test for the gateway: throughput and p99 latency at increasing connections per core.
+# Run once against the build under test and once against the build to compare with,
+# on the same host and with the same docker-compose stack.
+#
+# usage: WALLET_ID=<existing wallet uuid> bench/gateway-bench.sh [label]
+# env:   GATEWAY_URL (http://localhost:8080), DURATION (30s), THREADS (nproc), CONNS_PER_CORE ("1 8 32 128")
+set -euo pipefail
+
+command -v wrk >/dev/null || { echo "wrk is required (https://github.com/wg/wrk)" >&2; exit 1; }
+: "${WALLET_ID:?set WALLET_ID to an existing wallet id}"
+
+LABEL="${1:-current}"
+GATEWAY_URL="${GATEWAY_URL:-http://localhost:8080}"
+DURATION="${DURATION:-30s}"
+CORES="$(nproc)"
+THREADS="${THREADS:-$CORES}"
+CONNS_PER_CORE="${CONNS_PER_CORE:-1 8 32 128}"
+
+POST_SCRIPT="$(mktemp)"
+trap 'rm -f "$POST_SCRIPT"' EXIT
+cat > "$POST_SCRIPT" <<LUA
+wrk.method = "POST"
+wrk.headers["Content-Type"] = "application/json"
+wrk.body = '{"walletId":"$WALLET_ID","operationType":"DEPOSIT","amount":1}'
+LUA
+
+run() {
+    local name="$1" url="$2" conns="$3"; shift 3
+    local out rps p99
+    out="$(wrk -t"$THREADS" -c"$conns" -d"$DURATION" --latency "$@" "$url")"
+    rps="$(awk '/Requests\/sec/ {print $2}' <<<"$out")"
+    p99="$(awk '$1 == "99%" {print $2}' <<<"$out")"
+    printf '%-10s %-8s %8s %10s %12s %10s\n' "$LABEL" "$name" "$conns" "$((conns / CORES))" "$rps" "$p99"
+}
+
+printf '%-10s %-8s %8s %10s %12s %10s\n' label endpoint conns conns/core req/s p99
+for per_core in $CONNS_PER_CORE; do
+    conns=$((per_core * CORES))
+    run balance "$GATEWAY_URL/api/v1/wallets/$WALLET_ID" "$conns"
+    run deposit "$GATEWAY_URL/api/v1/wallet" "$conns" -s "$POST_SCRIPT"
+done
@@ -0,0 +1,83 @@
+#!/usr/bin/env bash
+# Load test for the wallet-service lookup path: throughput, p99 latency, JVM threads and resident memory at
+# increasing connections per core, hitting wallet-service directly so the gateway cache is out of the picture.
+# Threads and RSS are sampled halfway through each run; "KB/conn" is the RSS growth over the idle process divided
+# by the connections in flight. Run once per execution mode on the same host and docker-compose stack, e.g.
+# WALLET_PROFILES=reactive or WALLET_PROFILES=virtual-threads docker compose up -d --build wallet-service.
+#
+# usage: WALLET_ID=<existing wallet uuid> bench/wallet-service-bench.sh [label]
+# env:   WALLET_SERVICE_URL (http://localhost:9090), DURATION (30s), THREADS (nproc), CONNS_PER_CORE ("1 8 32 128"),
+#        COMPOSE_SERVICE (wallet-service, empty to skip the thread and memory columns)
+set -euo pipefail
+
+command -v wrk >/dev/null || { echo "wrk is required (https://github.com/wg/wrk)" >&2; exit 1; }
+: "${WALLET_ID:?set WALLET_ID to an existing wallet id}"
+
+LABEL="${1:-current}"
+WALLET_SERVICE_URL="${WALLET_SERVICE_URL:-http://localhost:9090}"
+DURATION="${DURATION:-30s}"
+CORES="$(nproc)"
+THREADS="${THREADS:-$CORES}"
+CONNS_PER_CORE="${CONNS_PER_CORE:-1 8 32 128}"
+COMPOSE_SERVICE="${COMPOSE_SERVICE-wallet-service}"
+
+in_container() {
+    if [ -z "$COMPOSE_SERVICE" ]; then
+        echo "-"
+        return
+    fi
+    docker compose exec -T "$COMPOSE_SERVICE" sh -c "$1" 2>/dev/null || echo "-"
+}
+
+jvm_threads() {
+    in_container 'ls /proc/1/task | wc -l'
+}
+
+jvm_rss_kb() {
+    in_container "awk '/VmRSS/ {print \$2}' /proc/1/status"
+}
+
+seconds() {
+    local d="$1"
+    case "$d" in
+        *m) echo $((${d%m} * 60)) ;;
+        *s) echo "${d%s}" ;;
+        *) echo "$d" ;;
+    esac
+}
+
+per_conn_kb() {
+    local rss="$1" conns="$2"
+    if [ "$rss" = "-" ] || [ "$IDLE_RSS" = "-" ]; then
+        echo "-"
+    else
+        echo $(((rss - IDLE_RSS) / conns))
+    fi
+}
+
+run() {
+    local name="$1" url="$2" conns="$3"; shift 3
+    local out rps p99 threads rss pid
+    wrk -t"$THREADS" -c"$conns" -d"$DURATION" --latency "$@" "$url" >"$OUT" &
+    pid=$!
+    sleep $(($(seconds "$DURATION") / 2))
+    threads="$(jvm_threads)"
+    rss="$(jvm_rss_kb)"
+    wait "$pid"
+    out="$(cat "$OUT")"
+    rps="$(awk '/Requests\/sec/ {print $2}' <<<"$out")"
+    p99="$(awk '$1 == "99%" {print $2}' <<<"$out")"
+    printf '%-16s %-8s %8s %10s %12s %10s %8s %10s %8s\n' "$LABEL" "$name" "$conns" "$((conns / CORES))" \
+        "$rps" "$p99" "$threads" "$rss" "$(per_conn_kb "$rss" "$conns")"
+}
+
+OUT="$(mktemp)"
+trap 'rm -f "$OUT"' EXIT
+IDLE_RSS="$(jvm_rss_kb)"
+
+printf '%-16s %-8s %8s %10s %12s %10s %8s %10s %8s\n' \
+    label endpoint conns conns/core req/s p99 threads rss-kb KB/conn
+for per_core in $CONNS_PER_CORE; do
+    conns=$((per_core * CORES))
+    run wallet "$WALLET_SERVICE_URL/api/v1/wallets/$WALLET_ID" "$conns"
+done
@@ -2,5 +2,6 @@ package ru.practicum.enums;
 
 public enum OperationStatus {
     SUCCESS,
-    DENIED
+    DENIED,
+    NOT_FOUND
 }
@@ -0,0 +1,25 @@
+package ru.practicum.kafka;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+import ru.practicum.enums.OperationStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Value
+@Builder
+@Jacksonized
+public class KafkaWalletBalanceEvent {
+    UUID walletId;
+    Long balance;
+    String currency;
+    Long version;
+
+    UUID operationTrackId;
+    OperationStatus status;
+
+    @Builder.Default
+    Instant timestamp = Instant.now();
+}
@@ -2,13 +2,21 @@ package ru.practicum.redis;
 
 import lombok.Builder;
 import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
+import java.time.Instant;
 import java.util.UUID;
 
 @Value
-@Builder
+@Builder(toBuilder = true)
+@Jacksonized
 public class WalletCacheDto {
     UUID walletId;
     Long balance;
     String currency;
+    Long version;
+    /**
+     * Set by the gateway when the entry is written to Redis, {@code null} in wallet-service responses.
+     */
+    Instant cachedAt;
 }
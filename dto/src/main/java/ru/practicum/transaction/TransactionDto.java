@@ -0,0 +1,23 @@
+package ru.practicum.transaction;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+import ru.practicum.enums.WalletOperationType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Value
+@Builder
+@Jacksonized
+public class TransactionDto {
+    UUID id;
+    UUID walletId;
+    WalletOperationType operationType;
+    Long amount;
+    Long previousBalance;
+    Long newBalance;
+    UUID operationTrackId;
+    Instant createdAt;
+}
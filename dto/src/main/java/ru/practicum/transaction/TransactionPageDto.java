@@ -0,0 +1,21 @@
+package ru.practicum.transaction;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+/**
+ * One page of a wallet's history, newest first.
+ */
+@Value
+@Builder
+@Jacksonized
+public class TransactionPageDto {
+    List<TransactionDto> transactions;
+    /**
+     * Opaque position after the last returned transaction, {@code null} on the last page.
+     */
+    String nextCursor;
+}
@@ -12,4 +12,5 @@ public class OperationResponseDto {
     UUID walletID;
     Long amount;
     OperationStatus status;
+    UUID operationTrackId;
 }
@@ -11,6 +11,7 @@ public class ResponseFactory {
                 .walletID(request.getWalletId())
                 .amount(request.getAmount())
                 .status(operationStatus)
+                .operationTrackId(request.getOperationTrackId())
                 .build();
     }
 
@@ -19,6 +20,7 @@ public class ResponseFactory {
                 .walletID(request.getWalletId())
                 .amount(request.getAmount())
                 .status(OperationStatus.DENIED)
+                .operationTrackId(request.getOperationTrackId())
                 .build();
     }
 }
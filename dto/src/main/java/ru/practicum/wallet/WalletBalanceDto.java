@@ -2,10 +2,15 @@ package ru.practicum.wallet;
 
 import lombok.Builder;
 import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.UUID;
 
 @Value
 @Builder
+@Jacksonized
 public class WalletBalanceDto {
+    UUID walletId;
     Long balance;
     String currency;
 }
@@ -1,12 +1,18 @@
 package ru.practicum.base;
 
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
 
 public class BaseClient {
     protected final WebClient webClient;
 
-    public BaseClient(String baseUrl, String apiPrefix) {
-        this.webClient = WebClient.builder()
+    /**
+     * Uses the Boot-configured builder, so the client runs on the same Reactor Netty event loops as the server.
+     */
+    public BaseClient(WebClient.Builder webClientBuilder, HttpClient httpClient, String baseUrl, String apiPrefix) {
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .baseUrl(baseUrl + apiPrefix)
                 .build();
     }
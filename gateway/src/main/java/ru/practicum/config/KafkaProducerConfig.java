@@ -7,10 +7,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
-import org.springframework.kafka.core.DefaultKafkaProducerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import reactor.kafka.sender.SenderOptions;
 import ru.practicum.kafka.KafkaWalletEvent;
 
 import java.util.HashMap;
@@ -23,12 +22,13 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${wallet.kafka.max-in-flight:10000}")
+    private int maxInFlight;
+
     @Bean
-    public ProducerFactory<String, KafkaWalletEvent> producerFactory() {
+    public SenderOptions<String, KafkaWalletEvent> senderOptions() {
         Map<String, Object> config = new HashMap<>();
         config.put("bootstrap.servers", bootstrapServers);
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         config.put(ProducerConfig.ACKS_CONFIG, "all");
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
@@ -37,12 +37,16 @@ public class KafkaProducerConfig {
         config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 67108864);
         config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
         config.put(ProducerConfig.RETRIES_CONFIG, 3);
-        config.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
-        return new DefaultKafkaProducerFactory<>(config, new StringSerializer(), new JsonSerializer());
+        return SenderOptions.<String, KafkaWalletEvent>create(config)
+                .withKeySerializer(new StringSerializer())
+                .withValueSerializer(new JsonSerializer<KafkaWalletEvent>().noTypeInfo())
+                .maxInFlight(maxInFlight)
+                // a failed record is reported in its SenderResult, the rest of a batch keeps going
+                .stopOnError(false);
     }
 
     @Bean
-    public KafkaTemplate<String, KafkaWalletEvent> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public ReactiveKafkaProducerTemplate<String, KafkaWalletEvent> reactiveKafkaTemplate() {
+        return new ReactiveKafkaProducerTemplate<>(senderOptions());
     }
 }
@@ -1,5 +1,6 @@
 package ru.practicum.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
@@ -26,11 +27,11 @@ public class RedisConfig {
 
     @Bean
     public ReactiveRedisTemplate<String, WalletCacheDto> reactiveRedisTemplate(
-            ReactiveRedisConnectionFactory redisConnectionFactory) {
+            ReactiveRedisConnectionFactory redisConnectionFactory, ObjectMapper objectMapper) {
 
         StringRedisSerializer keySerializer = new StringRedisSerializer();
         Jackson2JsonRedisSerializer<WalletCacheDto> valueSerializer =
-                new Jackson2JsonRedisSerializer<>(WalletCacheDto.class);
+                new Jackson2JsonRedisSerializer<>(objectMapper, WalletCacheDto.class);
 
         RedisSerializationContext.RedisSerializationContextBuilder<String, WalletCacheDto> builder =
                 RedisSerializationContext.newSerializationContext(keySerializer);
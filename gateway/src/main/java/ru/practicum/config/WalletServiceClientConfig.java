@@ -0,0 +1,61 @@
+package ru.practicum.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class WalletServiceClientConfig {
+
+    @Value("${wallet-service.client.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${wallet-service.client.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${wallet-service.client.pending-acquire-timeout:2s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${wallet-service.client.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${wallet-service.client.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    @Value("${wallet-service.client.response-timeout:2s}")
+    private Duration responseTimeout;
+
+    @Value("${wallet-service.client.http2:false}")
+    private boolean http2;
+
+    /**
+     * Bounded pool for wallet-service calls, pool state is exported as {@code reactor.netty.connection.provider.*}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider walletServiceConnectionProvider() {
+        return ConnectionProvider.builder("wallet-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * With {@code http2} enabled the client upgrades to h2c, so calls are multiplexed over fewer connections.
+     */
+    @Bean
+    public HttpClient walletServiceHttpClient(ConnectionProvider walletServiceConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(walletServiceConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        return http2 ? httpClient.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C) : httpClient;
+    }
+}
@@ -3,21 +3,23 @@ package ru.practicum.exception;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import ru.practicum.BadRequestException;
 import ru.practicum.LowBalanceException;
 import ru.practicum.NotFoundException;
+import ru.practicum.ServiceUnavailableException;
 import ru.practicum.model.Violation;
 
 @RestControllerAdvice
 @Slf4j
 public class GetawayExceptionHandler {
 
-    @ExceptionHandler(MethodArgumentNotValidException.class)
+    @ExceptionHandler(WebExchangeBindException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public Violation handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+    public Violation handleWebExchangeBindException(WebExchangeBindException ex) {
         String field = ex.getBindingResult().getFieldError().getField();
         String message = ex.getBindingResult().getFieldError().getDefaultMessage();
         Object rejectedValue = ex.getBindingResult().getFieldError().getRejectedValue();
@@ -60,6 +62,16 @@ public class GetawayExceptionHandler {
         );
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Violation handleBadRequestException(BadRequestException ex) {
+        log.error("Bad Request Exception: ", ex);
+        return new Violation(
+                "Bad Request",
+                ex.getMessage()
+        );
+    }
+
     @ExceptionHandler(LowBalanceException.class)
     @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
     public Violation handleLowBalanceException(LowBalanceException ex) {
@@ -70,4 +82,14 @@ public class GetawayExceptionHandler {
         );
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Violation handleServiceUnavailableException(ServiceUnavailableException ex) {
+        log.error("Service Unavailable Exception: {}", ex.getMessage());
+        return new Violation(
+                "Service Unavailable",
+                ex.getMessage()
+        );
+    }
+
 }
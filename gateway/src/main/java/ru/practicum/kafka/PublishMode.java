@@ -0,0 +1,12 @@
+package ru.practicum.kafka;
+
+public enum PublishMode {
+    /**
+     * Completes as soon as the record is handed to the producer, broker failures are only logged.
+     */
+    FIRE_AND_FORGET,
+    /**
+     * Completes when the broker has acknowledged the record, fails if it was not written.
+     */
+    AWAIT_ACK
+}
@@ -0,0 +1,39 @@
+package ru.practicum.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.practicum.wallet.WalletCacheService;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WalletBalanceEventConsumer {
+    private static final Duration APPLY_TIMEOUT = Duration.ofSeconds(5);
+
+    private final WalletCacheService walletCacheService;
+
+    /**
+     * Redelivering a slow event would block the listener thread again for every record behind it, so an event
+     * not applied within {@link #APPLY_TIMEOUT} is skipped: the cached balance stays until its TTL and the
+     * hold of the operation stops counting against the wallet after {@code wallet.holds.max-age}.
+     */
+    @KafkaListener(topics = "wallet_balance", groupId = "gateway")
+    public void onBalanceEvent(KafkaWalletBalanceEvent event) {
+        log.info("Received balance event: {}", event);
+        walletCacheService.applyBalanceEvent(event)
+                .timeout(APPLY_TIMEOUT)
+                .onErrorResume(TimeoutException.class, e -> {
+                    log.warn("Balance event for wallet {}, track id {} not applied within {}, "
+                                    + "leaving its hold to wallet.holds.max-age",
+                            event.getWalletId(), event.getOperationTrackId(), APPLY_TIMEOUT);
+                    return Mono.empty();
+                })
+                .block();
+    }
+}
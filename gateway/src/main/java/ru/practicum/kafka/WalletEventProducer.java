@@ -1,30 +1,150 @@
 package ru.practicum.kafka;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.SenderRecord;
 
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes wallet events through reactor-kafka, so the producer never runs on an event-loop thread.
+ * The number of unacknowledged records is capped; sends over the cap fail immediately instead of queueing.
+ */
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class WalletEventProducer {
     private static final String WALLET_EVENT_TOPIC = "wallet_event";
+    private static final String SEND_METRIC = "wallet.kafka.send";
+
+    private final ReactiveKafkaProducerTemplate<String, KafkaWalletEvent> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final PublishMode defaultMode;
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public WalletEventProducer(ReactiveKafkaProducerTemplate<String, KafkaWalletEvent> kafkaTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${wallet.kafka.publish-mode:AWAIT_ACK}") PublishMode defaultMode,
+                               @Value("${wallet.kafka.max-in-flight:10000}") int maxInFlight) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.defaultMode = defaultMode;
+        this.maxInFlight = maxInFlight;
+        Gauge.builder(SEND_METRIC + ".in-flight", inFlight, AtomicInteger::get)
+                .description("Wallet events handed to the producer and not yet acknowledged")
+                .register(meterRegistry);
+    }
+
+    public Mono<Void> sendEvent(KafkaWalletEvent kafkaWalletEvent) {
+        return sendEvent(kafkaWalletEvent, defaultMode);
+    }
+
+    public Mono<Void> sendEvent(KafkaWalletEvent kafkaWalletEvent, PublishMode mode) {
+        return publish(List.of(kafkaWalletEvent), mode, ConcurrentHashMap.newKeySet())
+                .flatMap(WalletEventProducer::failIfUnacknowledged);
+    }
+
+    public Mono<Void> sendEvents(List<KafkaWalletEvent> kafkaWalletEvents) {
+        return sendEvents(kafkaWalletEvents, defaultMode);
+    }
 
-    private final KafkaTemplate<String, KafkaWalletEvent> kafkaTemplate;
+    /**
+     * Sends the events as one publisher, so the producer batches them without an explicit flush.
+     */
+    public Mono<Void> sendEvents(List<KafkaWalletEvent> kafkaWalletEvents, PublishMode mode) {
+        return publish(kafkaWalletEvents, mode, ConcurrentHashMap.newKeySet())
+                .flatMap(WalletEventProducer::failIfUnacknowledged);
+    }
+
+    /**
+     * Like {@link #sendEvents(List)}, but reports the outcome per record instead of failing the whole send.
+     *
+     * @return track ids of the events the broker did not acknowledge; if the send itself fails, every event
+     * without an ack so far
+     */
+    public Mono<Set<UUID>> sendEventsReportingFailures(List<KafkaWalletEvent> kafkaWalletEvents) {
+        Set<UUID> acked = ConcurrentHashMap.newKeySet();
+        return publish(kafkaWalletEvents, defaultMode, acked)
+                .onErrorResume(e -> Mono.just(unacknowledged(kafkaWalletEvents, acked)));
+    }
 
-    public void sendEvent(KafkaWalletEvent kafkaWalletEvent) {
-        String key = kafkaWalletEvent.getWalletId().toString();
+    /**
+     * The sender does not stop on a failed record, each result carries its own exception.
+     */
+    private Mono<Set<UUID>> publish(List<KafkaWalletEvent> events, PublishMode mode, Set<UUID> acked) {
+        return Mono.defer(() -> {
+            if (inFlight.addAndGet(events.size()) > maxInFlight) {
+                inFlight.addAndGet(-events.size());
+                return Mono.error(new IllegalStateException(
+                        "Kafka producer saturated: more than " + maxInFlight + " events awaiting ack"));
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Mono<Set<UUID>> acks = kafkaTemplate.send(Flux.fromIterable(events).map(this::toRecord))
+                    .doOnNext(result -> {
+                        if (result.exception() == null) {
+                            acked.add(result.correlationMetadata());
+                            log.info("Send event success. Track id {}, partition {}, offset {}",
+                                    result.correlationMetadata(), result.recordMetadata().partition(),
+                                    result.recordMetadata().offset());
+                        } else {
+                            log.error("Send event failed. Track id {}", result.correlationMetadata(),
+                                    result.exception());
+                        }
+                    })
+                    .then(Mono.fromSupplier(() -> unacknowledged(events, acked)))
+                    .doOnSuccess(failed -> sample.stop(sendTimer(failed.isEmpty() ? "success" : "failure")))
+                    .doOnError(e -> {
+                        sample.stop(sendTimer("failure"));
+                        log.error("Send event failed", e);
+                    })
+                    .doFinally(signal -> inFlight.addAndGet(-events.size()));
+
+            if (mode == PublishMode.FIRE_AND_FORGET) {
+                acks.onErrorResume(e -> Mono.empty()).subscribe();
+                return Mono.just(Set.of());
+            }
+            return acks;
+        });
+    }
 
-        kafkaTemplate.send(WALLET_EVENT_TOPIC, key, kafkaWalletEvent)
-                .whenComplete((result, error) -> {
-                    if (error != null) {
-                        log.error("Send event failed", error);
-                    } else {
-                        log.info("Send event success. Track id {}, partition {}, offset {}",
-                                key, result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
-                    }
-                });
+    private static Set<UUID> unacknowledged(List<KafkaWalletEvent> events, Set<UUID> acked) {
+        return events.stream()
+                .map(KafkaWalletEvent::getOperationTrackId)
+                .filter(operationTrackId -> !acked.contains(operationTrackId))
+                .collect(Collectors.toSet());
     }
 
+    private static Mono<Void> failIfUnacknowledged(Set<UUID> failed) {
+        return failed.isEmpty()
+                ? Mono.empty()
+                : Mono.error(new IllegalStateException("Wallet events not acknowledged: " + failed));
+    }
+
+    private SenderRecord<String, KafkaWalletEvent, UUID> toRecord(KafkaWalletEvent event) {
+        return SenderRecord.create(
+                new ProducerRecord<>(WALLET_EVENT_TOPIC, event.getWalletId().toString(), event),
+                event.getOperationTrackId());
+    }
+
+    private Timer sendTimer(String result) {
+        return Timer.builder(SEND_METRIC)
+                .description("Time from handing wallet events to the producer until the broker ack")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 }
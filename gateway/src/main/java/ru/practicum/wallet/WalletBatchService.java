@@ -0,0 +1,288 @@
+package ru.practicum.wallet;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.enums.OperationStatus;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletEvent;
+import ru.practicum.kafka.WalletEventProducer;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static ru.practicum.wallet.ResponseFactory.createResponse;
+
+/**
+ * Bulk variants of {@link WalletCacheService}: wallets are resolved with one MGET, one bulk wallet-service
+ * call for the misses and one Redis write-back, accepted events are published as one producer send.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class WalletBatchService {
+    private final ReactiveRedisTemplate<String, WalletCacheDto> reactiveRedisTemplate;
+    private final WalletServiceClient walletServiceClient;
+    private final WalletEventProducer eventProducer;
+    private final WalletNearCache nearCache;
+    private final WalletCacheWriter cacheWriter;
+    private final WalletHoldService holdService;
+    private final WalletDtoMapper walletDtoMapper;
+    private final WalletCacheFreshness freshness;
+
+    public Mono<List<OperationResponseDto>> processOperations(List<NewWalletOpsRequest> requests) {
+        log.info("Processing batch of {} wallet operations", requests.size());
+        Set<UUID> walletIds = new LinkedHashSet<>();
+        requests.forEach(request -> walletIds.add(request.getWalletId()));
+        WalletReadType readType = requests.stream()
+                .anyMatch(request -> request.getOperationType() == WalletOperationType.WITHDRAW)
+                ? WalletReadType.WITHDRAW
+                : WalletReadType.OPERATION;
+
+        // Nothing is reserved before admission, so a failed resolution only denies the wallets it left unresolved
+        Set<UUID> unresolved = new HashSet<>();
+        return resolveWallets(walletIds, readType, unresolved)
+                .onErrorResume(e -> {
+                    log.info("Error resolving wallets for batch of {} wallet operations", requests.size(), e);
+                    unresolved.addAll(walletIds);
+                    return Mono.just(Map.of());
+                })
+                .flatMap(wallets -> Flux.fromIterable(requests)
+                        .concatMap(request -> unresolved.contains(request.getWalletId())
+                                ? Mono.just(new Admission(request, OperationStatus.DENIED))
+                                : admit(request, wallets.get(request.getWalletId())))
+                        .collectList())
+                .flatMap(this::publishAccepted);
+    }
+
+    /**
+     * @return balances of the known wallets in request order, unknown ids are left out
+     */
+    public Mono<List<WalletBalanceDto>> getBalances(List<UUID> walletIds) {
+        log.info("Getting balances for {} wallets", walletIds.size());
+        Set<UUID> uniqueIds = new LinkedHashSet<>(walletIds);
+
+        return resolveWallets(uniqueIds, WalletReadType.BALANCE, null)
+                .map(wallets -> uniqueIds.stream()
+                        .map(wallets::get)
+                        .filter(Objects::nonNull)
+                        .map(walletDtoMapper::toBalanceDto)
+                        .toList());
+    }
+
+    /**
+     * Cached entries are classified like in {@link WalletCacheService}: expired ones count as misses,
+     * the ones close to or past the TTL are served and refreshed with one background bulk fetch.
+     *
+     * @param unresolved collects the misses a failed wallet-service fetch left unresolved, the wallets found
+     *                   in the caches are still returned; {@code null} fails the whole resolution instead
+     */
+    private Mono<Map<UUID, WalletCacheDto>> resolveWallets(Set<UUID> walletIds, WalletReadType readType,
+                                                           Set<UUID> unresolved) {
+        Map<UUID, WalletCacheDto> wallets = new HashMap<>();
+        List<UUID> nearMisses = new ArrayList<>();
+        List<UUID> refreshes = new ArrayList<>();
+        for (UUID walletId : walletIds) {
+            WalletCacheDto nearCached = nearCache.getIfPresent(walletId);
+            WalletCacheFreshness.State state = nearCached == null
+                    ? WalletCacheFreshness.State.EXPIRED
+                    : freshness.classify(nearCached, readType);
+            if (state == WalletCacheFreshness.State.EXPIRED) {
+                nearMisses.add(walletId);
+            } else {
+                wallets.put(walletId, nearCached);
+                if (state != WalletCacheFreshness.State.FRESH) {
+                    refreshes.add(walletId);
+                }
+            }
+        }
+        if (nearMisses.isEmpty()) {
+            refreshInBackground(refreshes);
+            return Mono.just(wallets);
+        }
+
+        return getCachedWallets(nearMisses)
+                .flatMap(cached -> {
+                    List<UUID> misses = new ArrayList<>();
+                    for (int i = 0; i < nearMisses.size(); i++) {
+                        UUID walletId = nearMisses.get(i);
+                        WalletCacheDto wallet = i < cached.size() ? cached.get(i) : null;
+                        WalletCacheFreshness.State state = wallet == null
+                                ? WalletCacheFreshness.State.EXPIRED
+                                : freshness.classify(wallet, readType);
+                        if (state != WalletCacheFreshness.State.EXPIRED) {
+                            if (state != WalletCacheFreshness.State.STALE) {
+                                nearCache.put(wallet);
+                            }
+                            if (state != WalletCacheFreshness.State.FRESH) {
+                                refreshes.add(walletId);
+                            }
+                            wallets.put(walletId, wallet);
+                        } else {
+                            misses.add(walletId);
+                        }
+                    }
+                    refreshInBackground(refreshes);
+                    if (misses.isEmpty()) {
+                        return Mono.just(wallets);
+                    }
+
+                    log.info("Batch cache miss for {} wallets, fetching from wallet-service", misses.size());
+                    Mono<List<WalletCacheDto>> fetch = fetchWallets(misses);
+                    if (unresolved != null) {
+                        fetch = fetch.onErrorResume(e -> {
+                            log.info("Batch fetch failed for {} wallets, leaving them unresolved", misses.size(), e);
+                            unresolved.addAll(misses);
+                            return Mono.just(List.of());
+                        });
+                    }
+                    return fetch
+                            .map(fetched -> {
+                                fetched.forEach(wallet -> wallets.put(wallet.getWalletId(), wallet));
+                                return wallets;
+                            });
+                });
+    }
+
+    private Mono<List<WalletCacheDto>> fetchWallets(List<UUID> walletIds) {
+        return walletServiceClient.getWalletsInfo(walletIds)
+                .flatMap(fetched -> cacheWallets(fetched).thenReturn(fetched));
+    }
+
+    private void refreshInBackground(List<UUID> walletIds) {
+        if (walletIds.isEmpty()) {
+            return;
+        }
+        log.info("Refreshing {} cached wallets in background", walletIds.size());
+        fetchWallets(walletIds)
+                .subscribe(fetched -> { },
+                        e -> log.info("Background refresh failed for {} wallets", walletIds.size(), e));
+    }
+
+    private Mono<List<WalletCacheDto>> getCachedWallets(List<UUID> walletIds) {
+        List<String> keys = walletIds.stream()
+                .map(walletId -> WalletCacheWriter.WALLET_KEY_PREFIX + walletId)
+                .toList();
+        return reactiveRedisTemplate.opsForValue()
+                .multiGet(keys)
+                .onErrorResume(e -> {
+                    log.info("Redis unavailable, proceeding without cache for {} wallets", keys.size(), e);
+                    return Mono.just(Collections.emptyList());
+                });
+    }
+
+    /**
+     * Writes fetched wallets back to Redis in one script call. The near cache is only filled when
+     * nothing was skipped as stale; otherwise the next read picks the newer entries up from Redis.
+     */
+    private Mono<Void> cacheWallets(List<WalletCacheDto> fetched) {
+        return cacheWriter.writeAll(fetched)
+                .doOnNext(allWritten -> {
+                    if (allWritten) {
+                        fetched.forEach(nearCache::put);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.info("Caching error for {} wallets", fetched.size(), e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Admission> admit(NewWalletOpsRequest request, WalletCacheDto wallet) {
+        if (wallet == null) {
+            return Mono.just(new Admission(request, OperationStatus.NOT_FOUND));
+        }
+        if (request.getOperationType() != WalletOperationType.WITHDRAW) {
+            return Mono.just(new Admission(request, OperationStatus.SUCCESS));
+        }
+
+        return holdService.reserve(request.getWalletId(), request.getOperationTrackId(), request.getAmount(), wallet)
+                .onErrorResume(e -> {
+                    log.info("Hold admission unavailable for wallet: {}, checking cached balance",
+                            request.getWalletId(), e);
+                    return Mono.just(wallet.getBalance() >= request.getAmount());
+                })
+                .map(reserved -> new Admission(request, reserved ? OperationStatus.SUCCESS : OperationStatus.DENIED));
+    }
+
+    /**
+     * Only the events the broker did not acknowledge are denied and have their holds released,
+     * the acknowledged ones will be applied by wallet-service. A publish that fails as a whole
+     * counts every accepted event as unacknowledged.
+     */
+    private Mono<List<OperationResponseDto>> publishAccepted(List<Admission> admissions) {
+        List<KafkaWalletEvent> events = admissions.stream()
+                .filter(Admission::isAccepted)
+                .map(admission -> toEvent(admission.getRequest()))
+                .toList();
+        if (events.isEmpty()) {
+            return Mono.just(toResponses(admissions, Set.of()));
+        }
+
+        return eventProducer.sendEventsReportingFailures(events)
+                .onErrorResume(e -> {
+                    log.info("Batch publish of {} accepted operations failed", events.size(), e);
+                    return Mono.just(events.stream()
+                            .map(KafkaWalletEvent::getOperationTrackId)
+                            .collect(Collectors.toSet()));
+                })
+                .flatMap(unpublished -> {
+                    if (unpublished.isEmpty()) {
+                        return Mono.just(toResponses(admissions, unpublished));
+                    }
+                    log.info("Batch publish failed for {} of {} accepted operations, denying them",
+                            unpublished.size(), events.size());
+                    return Flux.fromIterable(admissions)
+                            .filter(admission -> admission.isAccepted()
+                                    && unpublished.contains(admission.getRequest().getOperationTrackId())
+                                    && admission.getRequest().getOperationType() == WalletOperationType.WITHDRAW)
+                            .flatMap(admission -> holdService.release(admission.getRequest().getWalletId(),
+                                            admission.getRequest().getOperationTrackId())
+                                    .onErrorResume(releaseError -> Mono.empty()))
+                            .then(Mono.fromSupplier(() -> toResponses(admissions, unpublished)));
+                });
+    }
+
+    private List<OperationResponseDto> toResponses(List<Admission> admissions, Set<UUID> unpublished) {
+        return admissions.stream()
+                .map(admission -> createResponse(admission.getRequest(),
+                        admission.isAccepted() && unpublished.contains(admission.getRequest().getOperationTrackId())
+                                ? OperationStatus.DENIED
+                                : admission.getStatus()))
+                .toList();
+    }
+
+    private KafkaWalletEvent toEvent(NewWalletOpsRequest request) {
+        return KafkaWalletEvent.builder()
+                .walletId(request.getWalletId())
+                .operationType(request.getOperationType())
+                .amount(request.getAmount())
+                .operationTrackId(request.getOperationTrackId())
+                .build();
+    }
+
+    @Value
+    private static class Admission {
+        NewWalletOpsRequest request;
+        OperationStatus status;
+
+        boolean isAccepted() {
+            return status == OperationStatus.SUCCESS;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.wallet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Classifies a cached wallet by age against the cache TTL and the policy of the read type.
+ * Entries stay in Redis for the TTL plus the largest staleness bound, so stale reads have something to serve.
+ */
+@Component
+public class WalletCacheFreshness {
+
+    public enum State {
+        /** Younger than the TTL minus the refresh-ahead window. */
+        FRESH,
+        /** Close to the TTL: served, refreshed in the background. */
+        REFRESH_AHEAD,
+        /** Past the TTL but within the staleness bound: served, revalidated in the background. */
+        STALE,
+        /** Past the staleness bound: treated as a miss. */
+        EXPIRED
+    }
+
+    private final Duration ttl;
+    private final Map<WalletReadType, Duration> refreshAhead = new EnumMap<>(WalletReadType.class);
+    private final Map<WalletReadType, Duration> maxStale = new EnumMap<>(WalletReadType.class);
+
+    public WalletCacheFreshness(@Value("${wallet.cache.ttl:5m}") Duration ttl,
+                                @Value("${wallet.cache.read.balance.refresh-ahead:30s}") Duration balanceRefreshAhead,
+                                @Value("${wallet.cache.read.balance.max-stale:60s}") Duration balanceMaxStale,
+                                @Value("${wallet.cache.read.operation.refresh-ahead:30s}") Duration operationRefreshAhead,
+                                @Value("${wallet.cache.read.operation.max-stale:30s}") Duration operationMaxStale,
+                                @Value("${wallet.cache.read.withdraw.refresh-ahead:60s}") Duration withdrawRefreshAhead,
+                                @Value("${wallet.cache.read.withdraw.max-stale:0s}") Duration withdrawMaxStale) {
+        this.ttl = ttl;
+        refreshAhead.put(WalletReadType.BALANCE, balanceRefreshAhead);
+        refreshAhead.put(WalletReadType.OPERATION, operationRefreshAhead);
+        refreshAhead.put(WalletReadType.WITHDRAW, withdrawRefreshAhead);
+        maxStale.put(WalletReadType.BALANCE, balanceMaxStale);
+        maxStale.put(WalletReadType.OPERATION, operationMaxStale);
+        maxStale.put(WalletReadType.WITHDRAW, withdrawMaxStale);
+    }
+
+    /**
+     * Entries without {@code cachedAt} (written before it existed, or near cache copies) count as fresh,
+     * their own TTL bounds them.
+     */
+    public State classify(WalletCacheDto wallet, WalletReadType readType) {
+        if (wallet.getCachedAt() == null) {
+            return State.FRESH;
+        }
+
+        Duration age = Duration.between(wallet.getCachedAt(), Instant.now());
+        if (age.compareTo(ttl.minus(refreshAhead.get(readType))) < 0) {
+            return State.FRESH;
+        }
+        if (age.compareTo(ttl) < 0) {
+            return State.REFRESH_AHEAD;
+        }
+        return age.compareTo(ttl.plus(maxStale.get(readType))) <= 0 ? State.STALE : State.EXPIRED;
+    }
+
+    /**
+     * Redis TTL of a cache entry: the TTL plus the largest staleness bound of any read type.
+     */
+    public Duration retention() {
+        return ttl.plus(Collections.max(maxStale.values()));
+    }
+}
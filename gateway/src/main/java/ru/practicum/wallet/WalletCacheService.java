@@ -1,5 +1,9 @@
 package ru.practicum.wallet;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
@@ -9,14 +13,19 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import ru.practicum.LowBalanceException;
 import ru.practicum.NotFoundException;
+import ru.practicum.ServiceUnavailableException;
 import ru.practicum.enums.OperationStatus;
 import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
 import ru.practicum.kafka.KafkaWalletEvent;
 import ru.practicum.kafka.WalletEventProducer;
 import ru.practicum.redis.WalletCacheDto;
 
-import java.time.Duration;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static ru.practicum.wallet.ResponseFactory.createDeniedResponse;
 import static ru.practicum.wallet.ResponseFactory.createResponse;
@@ -28,17 +37,45 @@ public class WalletCacheService {
     private final ReactiveRedisTemplate<String, WalletCacheDto> reactiveRedisTemplate;
     private final WalletServiceClient walletServiceClient;
     private final WalletEventProducer eventProducer;
+    private final WalletNearCache nearCache;
+    private final WalletCacheWriter cacheWriter;
+    private final WalletHoldService holdService;
+    private final WalletNegativeCache negativeCache;
+    private final WalletCacheFreshness freshness;
 
     private final WalletDtoMapper walletDtoMapper;
 
-    private static final String WALLET_KEY_PREFIX = "wallet:";
-    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+    private static final String FETCH_METRIC = "wallet.cache.fetch";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<UUID, Mono<WalletCacheDto>> inFlightFetches = new ConcurrentHashMap<>();
+    private final AtomicLong leaderFetches = new AtomicLong();
+    private final AtomicLong coalescedFetches = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        FunctionCounter.builder(FETCH_METRIC, leaderFetches, AtomicLong::get)
+                .description("Wallet-service fetches issued on cache miss")
+                .tag("role", "leader")
+                .register(meterRegistry);
+        FunctionCounter.builder(FETCH_METRIC, coalescedFetches, AtomicLong::get)
+                .description("Cache misses served by joining an in-flight fetch")
+                .tag("role", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder(FETCH_METRIC + ".coalescing.ratio", this, WalletCacheService::coalescingRatio)
+                .description("Share of cache misses that joined an in-flight fetch")
+                .register(meterRegistry);
+    }
 
 
     public Mono<ResponseEntity<OperationResponseDto>> processOperation(NewWalletOpsRequest request) {
         log.info("Processing wallet operation: {}", request);
 
-        return getWallet(request.getWalletId())
+        WalletReadType readType = request.getOperationType() == WalletOperationType.WITHDRAW
+                ? WalletReadType.WITHDRAW
+                : WalletReadType.OPERATION;
+        return getWallet(request.getWalletId(), readType)
                 .flatMap(cachedWallet -> {
                     log.info("Processed with cached wallet: {}", cachedWallet);
                     return processWithCachedWallet(request, cachedWallet);
@@ -47,20 +84,15 @@ public class WalletCacheService {
                     log.info("Processed without cached wallet (cache was empty)");
                     return fetchAndProcessWallet(request);
                 }).flatMap(monoFunc -> monoFunc))
-                .flatMap(response -> {
-                    if (response != null && response.getStatusCode().is2xxSuccessful()) {
-                        log.info("Invalidating cache after successful processing wallet: {}", request.getWalletId());
-                        return invalidateWallet(request.getWalletId())
-                                .doOnError(e -> log.info("Cache invalidate failed for wallet: {}",
-                                        request.getWalletId(), e))
-                                .thenReturn(response);
-                    }
-                    return Mono.just(response);
-                })
                 .onErrorResume(NotFoundException.class, e -> {
                     log.info("Wallet operation {} not found", request.getWalletId());
                     return Mono.just(ResponseEntity.notFound().build());
                 })
+                .onErrorResume(ServiceUnavailableException.class, e -> {
+                    log.info("Wallet operation {} rejected, wallet-service unavailable", request.getWalletId());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .body(createDeniedResponse(request)));
+                })
                 .onErrorResume(LowBalanceException.class, e -> {
                     log.info("Wallet operation {} failed, low balance", request.getWalletId());
                     return Mono.just(ResponseEntity.badRequest()
@@ -76,48 +108,123 @@ public class WalletCacheService {
 
     public Mono<ResponseEntity<WalletBalanceDto>> getBalance(UUID walletId) {
         log.info("Getting balance for wallet: {}", walletId);
-        return getWallet(walletId)
+        return getWallet(walletId, WalletReadType.BALANCE)
                 .map(cachedWallet -> ResponseEntity.ok(walletDtoMapper.toBalanceDto(cachedWallet)))
                 .switchIfEmpty(Mono.defer(() ->
-                        walletServiceClient.getWalletInfo(walletId)
-                                .flatMap(walletInfo ->
-                                        walletInfo == null
-                                                ? Mono.just(ResponseEntity.notFound().build())
-                                                : cacheWallet(walletInfo)
-                                                .thenReturn(ResponseEntity.ok(walletDtoMapper.toBalanceDto(walletInfo)))
-                                )
+                        loadWallet(walletId)
+                                .map(walletInfo -> ResponseEntity.ok(walletDtoMapper.toBalanceDto(walletInfo)))
                 ));
     }
 
 
+    /**
+     * Write-through of a committed balance published by wallet-service. Redis keeps the newest version,
+     * near caches on every gateway node are evicted so they pick it up on the next read.
+     * The hold of the reported operation is released whether it was applied or rejected.
+     */
+    public Mono<Void> applyBalanceEvent(KafkaWalletBalanceEvent event) {
+        log.info("Applying balance event: {}", event);
+        Mono<Void> holdSettle = holdService.settle(event.getWalletId(), event.getOperationTrackId(),
+                event.getBalance(), event.getVersion());
+        if (event.getBalance() == null) {
+            // A successful outcome without a balance comes from a striped wallet: the committed
+            // balance is unknown here, so the cached copies are dropped and re-read on the next access
+            return event.getStatus() == OperationStatus.SUCCESS
+                    ? cacheWriter.evict(event.getWalletId())
+                    .then(nearCache.invalidateEverywhere(event.getWalletId()))
+                    .then(holdService.dropFunds(event.getWalletId()))
+                    .then(holdSettle)
+                    : holdSettle;
+        }
+
+        WalletCacheDto wallet = walletDtoMapper.toCacheDto(event);
+        return cacheWriter.write(wallet)
+                .flatMap(written -> written
+                        ? nearCache.invalidateEverywhere(wallet.getWalletId())
+                        : Mono.empty())
+                .then(holdSettle);
+    }
+
     private Mono<ResponseEntity<OperationResponseDto>> processWithCachedWallet(
             NewWalletOpsRequest request, WalletCacheDto cachedWallet
     ) {
-        if (request.getOperationType() == WalletOperationType.WITHDRAW &&
-                cachedWallet.getBalance() < request.getAmount()) {
-            return Mono.just(ResponseEntity.unprocessableEntity()
-                    .body(createDeniedResponse(request)));
+        if (request.getOperationType() != WalletOperationType.WITHDRAW) {
+            return acceptOperation(request);
         }
 
-        return Mono.fromRunnable(() -> sendKafkaEvent(request))
+        return holdService.reserve(request.getWalletId(), request.getOperationTrackId(), request.getAmount(),
+                        cachedWallet)
+                .onErrorResume(e -> {
+                    log.info("Hold admission unavailable for wallet: {}, checking cached balance",
+                            request.getWalletId(), e);
+                    return Mono.just(cachedWallet.getBalance() >= request.getAmount());
+                })
+                .flatMap(reserved -> {
+                    if (!reserved) {
+                        return Mono.just(ResponseEntity.unprocessableEntity()
+                                .body(createDeniedResponse(request)));
+                    }
+                    return acceptOperation(request)
+                            .onErrorResume(e -> holdService.release(request.getWalletId(), request.getOperationTrackId())
+                                    .onErrorResume(releaseError -> Mono.empty())
+                                    .then(Mono.error(e)));
+                });
+    }
+
+    private Mono<ResponseEntity<OperationResponseDto>> acceptOperation(NewWalletOpsRequest request) {
+        return sendKafkaEvent(request)
                 .thenReturn(ResponseEntity.accepted()
                         .body(createResponse(request, OperationStatus.SUCCESS)));
     }
 
     private Mono<ResponseEntity<OperationResponseDto>> fetchAndProcessWallet(NewWalletOpsRequest request) {
-        return walletServiceClient.getWalletInfo(request.getWalletId())
-                .flatMap(walletInfo -> {
-                    if (walletInfo == null) {
-                        log.info("Wallet not found with id {}", request.getWalletId());
-                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
-                    }
+        return loadWallet(request.getWalletId())
+                .flatMap(walletInfo -> processWithCachedWallet(request, walletInfo))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.info("Wallet not found with id {}", request.getWalletId());
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }));
+    }
 
-                    return cacheWallet(walletInfo)
-                            .then(processWithCachedWallet(request, walletInfo));
-                });
+    /**
+     * Fetches the wallet from wallet-service and caches it. Concurrent misses for the same wallet
+     * share a single in-flight fetch instead of each hitting wallet-service.
+     */
+    private Mono<WalletCacheDto> loadWallet(UUID walletId) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<WalletCacheDto>> created = new AtomicReference<>();
+            Mono<WalletCacheDto> fetch = inFlightFetches.computeIfAbsent(walletId, id -> {
+                Mono<WalletCacheDto> leader = fetchWallet(id)
+                        .flatMap(walletInfo -> cacheWallet(walletInfo).thenReturn(walletInfo))
+                        .doFinally(signal -> inFlightFetches.remove(id, created.get()))
+                        .cache();
+                created.set(leader);
+                return leader;
+            });
+
+            if (fetch == created.get()) {
+                leaderFetches.incrementAndGet();
+            } else {
+                coalescedFetches.incrementAndGet();
+                log.info("Joined in-flight fetch for wallet: {}", walletId);
+            }
+            return fetch;
+        });
+    }
+
+    /**
+     * Ids recently answered 404 are served from the negative cache instead of wallet-service.
+     */
+    private Mono<WalletCacheDto> fetchWallet(UUID walletId) {
+        return negativeCache.isMissing(walletId)
+                .flatMap(missing -> missing
+                        ? Mono.error(new NotFoundException("Wallet not found: " + walletId))
+                        : walletServiceClient.getWalletInfo(walletId)
+                        .onErrorResume(NotFoundException.class,
+                                e -> negativeCache.markMissing(walletId).then(Mono.error(e))));
     }
 
-    private void sendKafkaEvent(NewWalletOpsRequest request) {
+    private Mono<Void> sendKafkaEvent(NewWalletOpsRequest request) {
         log.info("Sending Kafka event to wallet: {}", request);
         KafkaWalletEvent event = KafkaWalletEvent.builder()
                 .walletId(request.getWalletId())
@@ -126,12 +233,18 @@ public class WalletCacheService {
                 .operationTrackId(request.getOperationTrackId())
                 .build();
         log.info("Event build: {}", event);
-        eventProducer.sendEvent(event);
+        return eventProducer.sendEvent(event);
     }
 
-    private Mono<WalletCacheDto> getWallet(UUID walletId) {
+    private Mono<WalletCacheDto> getWallet(UUID walletId, WalletReadType readType) {
         log.info("Get Wallet in cache service: {}", walletId);
-        String key = WALLET_KEY_PREFIX + walletId;
+        WalletCacheDto nearCached = nearCache.getIfPresent(walletId);
+        if (nearCached != null) {
+            log.info("Success get from near cache : {}", nearCached);
+            return serveCached(nearCached, readType, false);
+        }
+
+        String key = WalletCacheWriter.WALLET_KEY_PREFIX + walletId;
         return reactiveRedisTemplate.opsForValue()
                 .get(key)
                 .doOnSuccess(value -> log.info("Success get from cache : {}", value))
@@ -139,32 +252,56 @@ public class WalletCacheService {
                 .onErrorResume(e -> {
                     log.info("Redis unavailable, proceeding without cache for wallet: {}", walletId);
                     return Mono.empty();
-                });
+                })
+                .flatMap(wallet -> serveCached(wallet, readType, true));
+    }
+
+    /**
+     * Serves a cached wallet according to its age: entries close to or past the TTL are served while a
+     * background fetch refreshes them, entries past the staleness bound of the read type are treated as a miss.
+     * Stale entries are not promoted to the near cache.
+     */
+    private Mono<WalletCacheDto> serveCached(WalletCacheDto wallet, WalletReadType readType, boolean fromRedis) {
+        WalletCacheFreshness.State state = freshness.classify(wallet, readType);
+        if (state == WalletCacheFreshness.State.EXPIRED) {
+            log.info("Cached wallet {} too stale for {} read, loading inline", wallet.getWalletId(), readType);
+            return Mono.empty();
+        }
+        if (state != WalletCacheFreshness.State.FRESH) {
+            refreshInBackground(wallet.getWalletId(), state);
+        }
+        if (fromRedis && state != WalletCacheFreshness.State.STALE) {
+            nearCache.put(wallet);
+        }
+        return Mono.just(wallet);
+    }
+
+    /**
+     * Goes through {@link #loadWallet}, so concurrent refreshes of one wallet share a single fetch.
+     */
+    private void refreshInBackground(UUID walletId, WalletCacheFreshness.State state) {
+        log.info("Refreshing cached wallet {} in background ({})", walletId, state);
+        loadWallet(walletId)
+                .subscribe(wallet -> { },
+                        e -> log.info("Background refresh failed for wallet: {}", walletId, e));
     }
 
     private Mono<Void> cacheWallet(WalletCacheDto wallet) {
         log.info("Cache wallet in cache service: {}", wallet);
-        String key = WALLET_KEY_PREFIX + wallet.getWalletId();
-        return reactiveRedisTemplate.opsForValue()
-                .set(key, wallet, CACHE_TTL)
-                .doOnSuccess(v -> log.info("Cached wallet: {}", wallet.getWalletId()))
+        return cacheWriter.write(wallet)
+                .doOnNext(written -> {
+                    if (written) {
+                        nearCache.put(wallet);
+                    }
+                })
                 .doOnError(e -> log.info("Caching error for wallet: {}", wallet.getWalletId(), e))
                 .then();
     }
 
-    private Mono<Boolean> invalidateWallet(UUID walletId) {
-        log.info("Invalidate wallet in cache service: {}", walletId);
-        String key = WALLET_KEY_PREFIX + walletId;
-        return reactiveRedisTemplate.opsForValue()
-                .delete(key)
-                .doOnSuccess(deleted -> {
-                    if (Boolean.TRUE.equals(deleted)) {
-                        log.info("Cache invalidate success for wallet: {}", walletId);
-                    } else {
-                        log.info("Cache invalidate failed for wallet: {}", walletId);
-                    }
-                })
-                .doOnError(e -> log.info("Cache invalidate failed for wallet: {}", walletId, e));
+    double coalescingRatio() {
+        long coalesced = coalescedFetches.get();
+        long total = leaderFetches.get() + coalesced;
+        return total == 0 ? 0.0 : (double) coalesced / total;
     }
 
 }
@@ -0,0 +1,108 @@
+package ru.practicum.wallet;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Writes wallet entries to Redis guarded by the wallet version, so a stale snapshot
+ * (late fetch, reordered balance event) never overwrites a newer balance.
+ * Entries are stamped with {@code cachedAt} and kept past the cache TTL for stale-while-revalidate reads.
+ */
+@Component
+@Slf4j
+public class WalletCacheWriter {
+    static final String WALLET_KEY_PREFIX = "wallet:";
+
+    private static final RedisScript<Long> VERSIONED_SET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/wallet-cache-set.lua"), Long.class);
+    private static final RedisScript<Long> VERSIONED_MSET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/wallet-cache-mset.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+
+    public WalletCacheWriter(ReactiveStringRedisTemplate stringRedisTemplate,
+                             ObjectMapper objectMapper,
+                             WalletCacheFreshness freshness) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.retention = freshness.retention();
+    }
+
+    /**
+     * @return {@code true} if the entry was written, {@code false} if Redis already holds a newer version
+     */
+    public Mono<Boolean> write(WalletCacheDto wallet) {
+        return Mono.fromCallable(() -> serialize(wallet, Instant.now()))
+                .flatMap(json -> stringRedisTemplate.execute(VERSIONED_SET_SCRIPT,
+                                List.of(WALLET_KEY_PREFIX + wallet.getWalletId()),
+                                List.of(json,
+                                        String.valueOf(Objects.requireNonNullElse(wallet.getVersion(), 0L)),
+                                        String.valueOf(retention.toMillis())))
+                        .next())
+                .map(written -> written == 1L)
+                .doOnNext(written -> {
+                    if (written) {
+                        log.info("Cached wallet: {}, version {}", wallet.getWalletId(), wallet.getVersion());
+                    } else {
+                        log.info("Skipped stale cache write for wallet: {}, version {}",
+                                wallet.getWalletId(), wallet.getVersion());
+                    }
+                });
+    }
+
+    /**
+     * Writes all entries in one round trip with the same version guard as {@link #write}.
+     *
+     * @return {@code true} if every entry was written, {@code false} if at least one was skipped as older
+     */
+    public Mono<Boolean> writeAll(List<WalletCacheDto> wallets) {
+        if (wallets.isEmpty()) {
+            return Mono.just(true);
+        }
+
+        return Mono.fromCallable(() -> {
+                    Instant cachedAt = Instant.now();
+                    List<String> args = new ArrayList<>(wallets.size() * 2 + 1);
+                    for (WalletCacheDto wallet : wallets) {
+                        args.add(serialize(wallet, cachedAt));
+                        args.add(String.valueOf(Objects.requireNonNullElse(wallet.getVersion(), 0L)));
+                    }
+                    args.add(String.valueOf(retention.toMillis()));
+                    return args;
+                })
+                .flatMap(args -> stringRedisTemplate.execute(VERSIONED_MSET_SCRIPT,
+                                wallets.stream()
+                                        .map(wallet -> WALLET_KEY_PREFIX + wallet.getWalletId())
+                                        .toList(),
+                                args)
+                        .next())
+                .doOnNext(written -> log.info("Cached {} of {} wallets", written, wallets.size()))
+                .map(written -> written == wallets.size());
+    }
+
+    public Mono<Void> evict(UUID walletId) {
+        return stringRedisTemplate.delete(WALLET_KEY_PREFIX + walletId)
+                .doOnNext(deleted -> log.info("Evicted cached wallet: {}", walletId))
+                .then();
+    }
+
+    private String serialize(WalletCacheDto wallet, Instant cachedAt) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(wallet.toBuilder().cachedAt(cachedAt).build());
+    }
+}
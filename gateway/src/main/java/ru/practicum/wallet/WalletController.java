@@ -2,13 +2,21 @@ package ru.practicum.wallet;
 
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -17,7 +25,11 @@ import java.util.UUID;
 @RequestMapping("/api/v1")
 @Validated
 public class WalletController {
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final WalletCacheService cacheService;
+    private final WalletBatchService batchService;
+    private final WalletServiceClient walletServiceClient;
 
 
     @PostMapping("/wallet")
@@ -27,6 +39,14 @@ public class WalletController {
         return cacheService.processOperation(request);
     }
 
+    @PostMapping("/wallet/batch")
+    public Mono<ResponseEntity<List<OperationResponseDto>>> processOperations(
+            @RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<@Valid NewWalletOpsRequest> requests
+    ) {
+        return batchService.processOperations(requests)
+                .map(ResponseEntity::ok);
+    }
+
     @GetMapping("/wallets/{WALLET_UUID}")
     public Mono<ResponseEntity<WalletBalanceDto>> getBalance(
             @PathVariable UUID WALLET_UUID
@@ -34,4 +54,38 @@ public class WalletController {
         return cacheService.getBalance(WALLET_UUID);
     }
 
+    @GetMapping("/wallets/{WALLET_UUID}/balance")
+    public Mono<ResponseEntity<WalletBalanceDto>> getBalanceAsOf(
+            @PathVariable UUID WALLET_UUID,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf
+    ) {
+        return walletServiceClient.getBalanceAsOf(WALLET_UUID, asOf)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/wallets")
+    public Mono<ResponseEntity<List<WalletBalanceDto>>> getBalances(
+            @RequestParam @NotEmpty @Size(max = MAX_BATCH_SIZE) List<UUID> ids
+    ) {
+        return batchService.getBalances(ids)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping(value = "/wallets/{WALLET_UUID}/transactions", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTransactions(
+            @PathVariable UUID WALLET_UUID,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return walletServiceClient.getTransactions(WALLET_UUID, cursor, limit, MediaType.APPLICATION_JSON);
+    }
+
+    @GetMapping(value = "/wallets/{WALLET_UUID}/transactions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportTransactions(
+            @PathVariable UUID WALLET_UUID,
+            @RequestParam(required = false) String cursor
+    ) {
+        return walletServiceClient.getTransactions(WALLET_UUID, cursor, null, MediaType.APPLICATION_NDJSON);
+    }
+
 }
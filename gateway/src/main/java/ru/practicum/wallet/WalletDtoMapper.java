@@ -1,6 +1,8 @@
 package ru.practicum.wallet;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
 import ru.practicum.redis.WalletCacheDto;
 
 @Mapper(componentModel = "spring")
@@ -8,4 +10,7 @@ public interface WalletDtoMapper {
 
 
     WalletBalanceDto toBalanceDto(WalletCacheDto cachedWallet);
+
+    @Mapping(target = "cachedAt", ignore = true)
+    WalletCacheDto toCacheDto(KafkaWalletBalanceEvent balanceEvent);
 }
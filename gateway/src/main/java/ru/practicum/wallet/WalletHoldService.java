@@ -0,0 +1,112 @@
+package ru.practicum.wallet;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * WITHDRAW admission against the committed balance minus pending holds, checked and reserved
+ * atomically in Redis. Holds are released when wallet-service reports the operation outcome.
+ */
+@Component
+@Slf4j
+public class WalletHoldService {
+    private static final String KEY_PREFIX = "wallet:{";
+    private static final String FUNDS_KEY_SUFFIX = "}:funds";
+    private static final String HOLDS_KEY_SUFFIX = "}:holds";
+
+    private static final long RESERVED = 1L;
+    private static final long NOT_SEEDED = -1L;
+
+    private static final RedisScript<Long> RESERVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/wallet-hold-reserve.lua"), Long.class);
+    private static final RedisScript<Long> SETTLE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/wallet-hold-settle.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final Duration ttl;
+    private final Duration holdMaxAge;
+
+    public WalletHoldService(ReactiveStringRedisTemplate stringRedisTemplate,
+                             @Value("${wallet.holds.ttl:5m}") Duration ttl,
+                             @Value("${wallet.holds.max-age:2m}") Duration holdMaxAge) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ttl = ttl;
+        this.holdMaxAge = holdMaxAge;
+    }
+
+    /**
+     * @param wallet last known wallet state, used to seed the funds entry when Redis has none
+     * @return {@code true} if the amount is reserved, {@code false} if available funds are insufficient
+     */
+    public Mono<Boolean> reserve(UUID walletId, UUID operationTrackId, long amount, WalletCacheDto wallet) {
+        return runReserve(walletId, operationTrackId, amount)
+                .flatMap(result -> result == NOT_SEEDED
+                        ? settle(walletId, null, wallet.getBalance(), wallet.getVersion())
+                        .then(runReserve(walletId, operationTrackId, amount))
+                        : Mono.just(result))
+                .map(result -> result == RESERVED)
+                .doOnNext(reserved -> log.info("Hold for wallet {}, track id {}, amount {}: {}",
+                        walletId, operationTrackId, amount, reserved ? "reserved" : "insufficient funds"));
+    }
+
+    public Mono<Void> release(UUID walletId, UUID operationTrackId) {
+        return settle(walletId, operationTrackId, null, null);
+    }
+
+    /**
+     * Releases the hold of {@code operationTrackId} (if any) and records the committed balance
+     * unless a newer version is already stored.
+     */
+    public Mono<Void> settle(UUID walletId, UUID operationTrackId, Long balance, Long version) {
+        return stringRedisTemplate.execute(SETTLE_SCRIPT,
+                        keys(walletId),
+                        List.of(operationTrackId == null ? "" : operationTrackId.toString(),
+                                balance == null ? "" : balance.toString(),
+                                String.valueOf(Objects.requireNonNullElse(version, 0L)),
+                                String.valueOf(ttl.toMillis())))
+                .doOnError(e -> log.info("Hold settle failed for wallet: {}", walletId, e))
+                .then();
+    }
+
+    /**
+     * Forgets the committed balance, the next reservation seeds it again from a fresh wallet read.
+     * Pending holds are kept.
+     */
+    public Mono<Void> dropFunds(UUID walletId) {
+        return stringRedisTemplate.delete(fundsKey(walletId))
+                .then();
+    }
+
+    private Mono<Long> runReserve(UUID walletId, UUID operationTrackId, long amount) {
+        return stringRedisTemplate.execute(RESERVE_SCRIPT,
+                        keys(walletId),
+                        List.of(operationTrackId.toString(),
+                                String.valueOf(amount),
+                                String.valueOf(System.currentTimeMillis()),
+                                String.valueOf(holdMaxAge.toMillis()),
+                                String.valueOf(ttl.toMillis())))
+                .next();
+    }
+
+    /**
+     * Both keys of a wallet share the {@code {walletId}} hash tag, so the scripts touch a single cluster slot.
+     */
+    private static List<String> keys(UUID walletId) {
+        return List.of(fundsKey(walletId), KEY_PREFIX + walletId + HOLDS_KEY_SUFFIX);
+    }
+
+    private static String fundsKey(UUID walletId) {
+        return KEY_PREFIX + walletId + FUNDS_KEY_SUFFIX;
+    }
+}
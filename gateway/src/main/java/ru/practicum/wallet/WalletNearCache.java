@@ -0,0 +1,93 @@
+package ru.practicum.wallet;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * In-process L1 cache in front of the Redis wallet cache.
+ * Entries are evicted on every gateway node through the {@code wallet:invalidation} pub/sub channel,
+ * the short local TTL bounds staleness if an invalidation message is lost.
+ */
+@Component
+@Slf4j
+public class WalletNearCache {
+    static final String INVALIDATION_CHANNEL = "wallet:invalidation";
+
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final Cache<UUID, WalletCacheDto> cache;
+
+    private Disposable subscription;
+
+    public WalletNearCache(ReactiveStringRedisTemplate stringRedisTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${wallet.cache.near.max-size:10000}") long maxSize,
+                           @Value("${wallet.cache.near.ttl:30s}") Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "wallet.near-cache");
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = Flux.defer(() -> stringRedisTemplate.listenToChannel(INVALIDATION_CHANNEL))
+                .doOnSubscribe(s -> log.info("Subscribed to near cache invalidation channel"))
+                .doOnError(e -> {
+                    log.info("Near cache invalidation channel lost, clearing local cache", e);
+                    cache.invalidateAll();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(message -> evictLocal(message.getMessage()));
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    public WalletCacheDto getIfPresent(UUID walletId) {
+        return cache.getIfPresent(walletId);
+    }
+
+    public void put(WalletCacheDto wallet) {
+        cache.put(wallet.getWalletId(), wallet);
+    }
+
+    public Mono<Void> invalidateEverywhere(UUID walletId) {
+        cache.invalidate(walletId);
+        return stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, walletId.toString())
+                .doOnSuccess(receivers -> log.info("Near cache invalidation published for wallet: {}", walletId))
+                .doOnError(e -> log.info("Near cache invalidation publish failed for wallet: {}", walletId, e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private void evictLocal(String walletId) {
+        try {
+            cache.invalidate(UUID.fromString(walletId));
+        } catch (IllegalArgumentException e) {
+            log.info("Ignoring malformed near cache invalidation message: {}", walletId);
+        }
+    }
+}
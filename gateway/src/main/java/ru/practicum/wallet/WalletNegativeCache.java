@@ -0,0 +1,48 @@
+package ru.practicum.wallet;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Short-lived Redis markers for wallet ids wallet-service answered 404 for, so repeated lookups
+ * of an unknown id are answered from Redis instead of wallet-service and Postgres.
+ */
+@Component
+@Slf4j
+public class WalletNegativeCache {
+    static final String MISSING_KEY_PREFIX = "wallet:missing:";
+
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final Duration ttl;
+
+    public WalletNegativeCache(ReactiveStringRedisTemplate stringRedisTemplate,
+                               @Value("${wallet.cache.negative.ttl:30s}") Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ttl = ttl;
+    }
+
+    public Mono<Boolean> isMissing(UUID walletId) {
+        return stringRedisTemplate.hasKey(MISSING_KEY_PREFIX + walletId)
+                .onErrorResume(e -> {
+                    log.info("Negative cache read failed for wallet: {}", walletId, e);
+                    return Mono.just(false);
+                });
+    }
+
+    public Mono<Void> markMissing(UUID walletId) {
+        return stringRedisTemplate.opsForValue()
+                .set(MISSING_KEY_PREFIX + walletId, "1", ttl)
+                .doOnSuccess(set -> log.info("Marked wallet {} as missing for {}", walletId, ttl))
+                .onErrorResume(e -> {
+                    log.info("Negative cache write failed for wallet: {}", walletId, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.wallet;
+
+/**
+ * Why a cached wallet is read, each type has its own refresh-ahead window and staleness bound.
+ */
+public enum WalletReadType {
+    BALANCE,
+    OPERATION,
+    WITHDRAW
+}
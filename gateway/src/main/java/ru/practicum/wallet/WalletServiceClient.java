@@ -1,25 +1,63 @@
 package ru.practicum.wallet;
 
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import ru.practicum.BadRequestException;
 import ru.practicum.NotFoundException;
+import ru.practicum.ServiceUnavailableException;
 import ru.practicum.base.BaseClient;
 import ru.practicum.redis.WalletCacheDto;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
+/**
+ * Calls to wallet-service run under a per-call deadline, a bulkhead and a circuit breaker.
+ * When the breaker is open or the bulkhead is full the call fails fast with {@link ServiceUnavailableException}.
+ */
 @Service
 @Slf4j
 public class WalletServiceClient extends BaseClient {
 
     private static final String API_PREFIX = "/api/v1";
+    static final String RESILIENCE_INSTANCE = "wallet-service";
 
-    public WalletServiceClient(@Value("${wallet-service.url}") String baseUrl) {
-        super(baseUrl, API_PREFIX);
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration deadline;
+
+    public WalletServiceClient(WebClient.Builder webClientBuilder,
+                               HttpClient walletServiceHttpClient,
+                               CircuitBreakerRegistry circuitBreakerRegistry,
+                               BulkheadRegistry bulkheadRegistry,
+                               @Value("${wallet-service.url}") String baseUrl,
+                               @Value("${wallet-service.client.deadline:3s}") Duration deadline) {
+        super(webClientBuilder, walletServiceHttpClient, baseUrl, API_PREFIX);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(RESILIENCE_INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(RESILIENCE_INSTANCE);
+        this.deadline = deadline;
     }
 
     public Mono<WalletCacheDto> getWalletInfo(UUID walletId) {
@@ -30,10 +68,90 @@ public class WalletServiceClient extends BaseClient {
                 .onStatus(status -> status == HttpStatus.NOT_FOUND,
                         response -> Mono.error(new NotFoundException("Wallet not found: " + walletId)))
                 .bodyToMono(WalletCacheDto.class)
+                .transform(this::protect)
                 .doOnError(e -> {
                     if (!(e instanceof NotFoundException)) {
                         log.error("Error getting wallet cache for {}", walletId);
                     }
                 });
     }
+
+    public Mono<List<WalletCacheDto>> getWalletsInfo(Collection<UUID> walletIds) {
+        log.info("Get wallets info from wallet-service: {} ids", walletIds.size());
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/wallets")
+                        .queryParam("ids", walletIds.toArray())
+                        .build())
+                .retrieve()
+                .bodyToFlux(WalletCacheDto.class)
+                .collectList()
+                .transform(this::protect)
+                .doOnError(e -> log.error("Error getting wallets info for {} ids", walletIds.size()));
+    }
+
+    public Mono<WalletBalanceDto> getBalanceAsOf(UUID walletId, Instant asOf) {
+        log.info("Get balance of {} as of {} from wallet-service", walletId, asOf);
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/wallets/{walletId}/balance")
+                        .queryParam("asOf", asOf)
+                        .build(walletId))
+                .retrieve()
+                .onStatus(status -> status == HttpStatus.NOT_FOUND,
+                        response -> Mono.error(new NotFoundException("Wallet not found: " + walletId)))
+                .onStatus(status -> status == HttpStatus.BAD_REQUEST,
+                        response -> response.bodyToMono(String.class)
+                                .defaultIfEmpty("Bad request")
+                                .map(BadRequestException::new))
+                .bodyToMono(WalletBalanceDto.class)
+                .transform(this::protect)
+                .doOnError(e -> {
+                    if (!(e instanceof NotFoundException) && !(e instanceof BadRequestException)) {
+                        log.error("Error getting balance of {} as of {}", walletId, asOf);
+                    }
+                });
+    }
+
+    /**
+     * Passes a wallet's history through without decoding it. The deadline, bulkhead and breaker cover the call up
+     * to the response headers, so a long NDJSON export is not cut off by the deadline.
+     *
+     * @param mediaType {@code application/json} for one page, {@code application/x-ndjson} for the full export
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTransactions(UUID walletId, String cursor, Integer limit,
+                                                                  MediaType mediaType) {
+        log.info("Get transactions from wallet-service: {}, cursor {}", walletId, cursor);
+        return webClient.get()
+                .uri(uriBuilder -> {
+                    uriBuilder.path("/wallets/{walletId}/transactions");
+                    if (cursor != null) {
+                        uriBuilder.queryParam("cursor", cursor);
+                    }
+                    if (limit != null) {
+                        uriBuilder.queryParam("limit", limit);
+                    }
+                    return uriBuilder.build(walletId);
+                })
+                .accept(mediaType)
+                .retrieve()
+                .onStatus(status -> status == HttpStatus.NOT_FOUND,
+                        response -> Mono.error(new NotFoundException("Wallet not found: " + walletId)))
+                .toEntityFlux(DataBuffer.class)
+                .map(entity -> ResponseEntity.status(entity.getStatusCode())
+                        .contentType(Objects.requireNonNullElse(entity.getHeaders().getContentType(), mediaType))
+                        .body(entity.getBody()))
+                .transform(this::protect)
+                .doOnError(e -> {
+                    if (!(e instanceof NotFoundException)) {
+                        log.error("Error getting transactions of {}", walletId);
+                    }
+                });
+    }
+
+    private <T> Mono<T> protect(Mono<T> call) {
+        return call.timeout(deadline)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .onErrorMap(e -> e instanceof CallNotPermittedException || e instanceof BulkheadFullException,
+                        e -> new ServiceUnavailableException("wallet-service unavailable: " + e.getMessage(), e));
+    }
 }
@@ -0,0 +1,19 @@
+-- Multi-key variant of wallet-cache-set.lua: writes every entry unless Redis already holds a newer version.
+-- An equal version is rewritten so a refresh renews cachedAt and the TTL.
+-- KEYS[i] - wallet cache key, ARGV[2i-1] - serialized entry, ARGV[2i] - entry version, ARGV[#ARGV] - TTL in millis
+local ttl = ARGV[#ARGV]
+local written = 0
+for i, key in ipairs(KEYS) do
+    local current = redis.call('GET', key)
+    local stale = false
+    if current then
+        local ok, cached = pcall(cjson.decode, current)
+        stale = ok and type(cached) == 'table' and type(cached['version']) == 'number'
+                and cached['version'] > tonumber(ARGV[2 * i])
+    end
+    if not stale then
+        redis.call('SET', key, ARGV[2 * i - 1], 'PX', ttl)
+        written = written + 1
+    end
+end
+return written
@@ -0,0 +1,13 @@
+-- Writes a wallet cache entry unless Redis already holds a newer version.
+-- An equal version is rewritten so a refresh renews cachedAt and the TTL.
+-- KEYS[1] - wallet cache key, ARGV[1] - serialized entry, ARGV[2] - entry version, ARGV[3] - TTL in millis
+local current = redis.call('GET', KEYS[1])
+if current then
+    local ok, cached = pcall(cjson.decode, current)
+    if ok and type(cached) == 'table' and type(cached['version']) == 'number'
+            and cached['version'] > tonumber(ARGV[2]) then
+        return 0
+    end
+end
+redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+return 1
@@ -0,0 +1,33 @@
+-- Atomically reserves funds for a WITHDRAW.
+-- KEYS[1] - funds hash (balance, version), KEYS[2] - holds hash (track id -> "amount:createdAtMillis")
+-- ARGV[1] - operation track id, ARGV[2] - amount, ARGV[3] - now millis, ARGV[4] - hold max age millis, ARGV[5] - TTL millis
+-- Returns 1 if reserved (or already reserved), 0 if funds are insufficient, -1 if the funds entry must be seeded first.
+if redis.call('HEXISTS', KEYS[2], ARGV[1]) == 1 then
+    return 1
+end
+
+local balance = redis.call('HGET', KEYS[1], 'balance')
+if not balance then
+    return -1
+end
+
+local now = tonumber(ARGV[3])
+local maxAge = tonumber(ARGV[4])
+local held = 0
+local holds = redis.call('HGETALL', KEYS[2])
+for i = 1, #holds, 2 do
+    local amount, createdAt = string.match(holds[i + 1], '(%d+):(%d+)')
+    if now - tonumber(createdAt) > maxAge then
+        redis.call('HDEL', KEYS[2], holds[i])
+    else
+        held = held + tonumber(amount)
+    end
+end
+
+if tonumber(balance) - held < tonumber(ARGV[2]) then
+    return 0
+end
+
+redis.call('HSET', KEYS[2], ARGV[1], ARGV[2] .. ':' .. ARGV[3])
+redis.call('PEXPIRE', KEYS[2], ARGV[5])
+return 1
@@ -0,0 +1,19 @@
+-- Releases a hold and/or records the committed balance the holds are counted against.
+-- KEYS[1] - funds hash (balance, version), KEYS[2] - holds hash
+-- ARGV[1] - operation track id or empty, ARGV[2] - committed balance or empty, ARGV[3] - version, ARGV[4] - TTL millis
+if ARGV[1] ~= '' then
+    redis.call('HDEL', KEYS[2], ARGV[1])
+end
+
+if ARGV[2] == '' then
+    return 0
+end
+
+local version = redis.call('HGET', KEYS[1], 'version')
+if version and tonumber(version) >= tonumber(ARGV[3]) then
+    return 0
+end
+
+redis.call('HSET', KEYS[1], 'balance', ARGV[2], 'version', ARGV[3])
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+return 1
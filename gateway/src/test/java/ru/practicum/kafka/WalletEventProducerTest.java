@@ -0,0 +1,131 @@
+package ru.practicum.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.kafka.sender.SenderResult;
+import reactor.test.StepVerifier;
+import ru.practicum.enums.WalletOperationType;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletEventProducerTest {
+
+    @Mock
+    private ReactiveKafkaProducerTemplate<String, KafkaWalletEvent> kafkaTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void sendEvent_shouldFail_whenAckFailsAndModeIsAwaitAck() {
+        WalletEventProducer producer = new WalletEventProducer(kafkaTemplate, meterRegistry, PublishMode.AWAIT_ACK, 10);
+        when(kafkaTemplate.<UUID>send(any(Flux.class))).thenReturn(Flux.error(new IllegalStateException("Kafka down")));
+
+        StepVerifier.create(producer.sendEvent(event()))
+                .expectErrorMessage("Kafka down")
+                .verify();
+
+        assertEquals(1, meterRegistry.get("wallet.kafka.send").tag("result", "failure").timer().count());
+        assertEquals(0.0, meterRegistry.get("wallet.kafka.send.in-flight").gauge().value());
+    }
+
+    @Test
+    void sendEventsReportingFailures_shouldReturnOnlyUnacknowledgedTrackIds() {
+        WalletEventProducer producer = new WalletEventProducer(kafkaTemplate, meterRegistry, PublishMode.AWAIT_ACK, 10);
+        KafkaWalletEvent acked = event();
+        KafkaWalletEvent failed = event();
+        Flux<SenderResult<UUID>> results = Flux.just(
+                result(acked, null),
+                result(failed, new IllegalStateException("Not enough replicas")));
+        when(kafkaTemplate.<UUID>send(any(Flux.class))).thenReturn(results);
+
+        StepVerifier.create(producer.sendEventsReportingFailures(List.of(acked, failed)))
+                .expectNext(Set.of(failed.getOperationTrackId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void sendEventsReportingFailures_shouldReportEveryEventWithoutAck_whenSendFails() {
+        WalletEventProducer producer = new WalletEventProducer(kafkaTemplate, meterRegistry, PublishMode.AWAIT_ACK, 10);
+        KafkaWalletEvent acked = event();
+        KafkaWalletEvent pending = event();
+        Flux<SenderResult<UUID>> results = Flux.concat(
+                Flux.just(result(acked, null)),
+                Flux.error(new IllegalStateException("Producer closed")));
+        when(kafkaTemplate.<UUID>send(any(Flux.class))).thenReturn(results);
+
+        StepVerifier.create(producer.sendEventsReportingFailures(List.of(acked, pending)))
+                .expectNext(Set.of(pending.getOperationTrackId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void sendEvent_shouldCompleteBeforeAck_whenModeIsFireAndForget() {
+        WalletEventProducer producer = new WalletEventProducer(kafkaTemplate, meterRegistry,
+                PublishMode.FIRE_AND_FORGET, 10);
+        Sinks.Many<SenderResult<UUID>> acks = Sinks.many().unicast().onBackpressureBuffer();
+        when(kafkaTemplate.<UUID>send(any(Flux.class))).thenReturn(acks.asFlux());
+
+        StepVerifier.create(producer.sendEvent(event()))
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.get("wallet.kafka.send.in-flight").gauge().value());
+        acks.tryEmitComplete();
+        assertEquals(0.0, meterRegistry.get("wallet.kafka.send.in-flight").gauge().value());
+    }
+
+    @Test
+    void sendEvents_shouldRejectImmediately_whenInFlightLimitReached() {
+        WalletEventProducer producer = new WalletEventProducer(kafkaTemplate, meterRegistry, PublishMode.AWAIT_ACK, 1);
+
+        StepVerifier.create(producer.sendEvents(List.of(event(), event())))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(kafkaTemplate, never()).send(any(Flux.class));
+        assertEquals(0.0, meterRegistry.get("wallet.kafka.send.in-flight").gauge().value());
+    }
+
+    private KafkaWalletEvent event() {
+        return KafkaWalletEvent.builder()
+                .walletId(UUID.randomUUID())
+                .operationType(WalletOperationType.DEPOSIT)
+                .amount(100L)
+                .operationTrackId(UUID.randomUUID())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private SenderResult<UUID> result(KafkaWalletEvent event, Exception exception) {
+        SenderResult<UUID> result = mock(SenderResult.class);
+        when(result.correlationMetadata()).thenReturn(event.getOperationTrackId());
+        when(result.exception()).thenReturn(exception);
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("wallet_event", 0), 0, 0, 0, 0, 0);
+        lenient().when(result.recordMetadata()).thenReturn(metadata);
+        return result;
+    }
+}
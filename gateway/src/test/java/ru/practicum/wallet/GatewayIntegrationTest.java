@@ -19,7 +19,6 @@ import ru.practicum.redis.WalletCacheDto;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 
 @Testcontainers
@@ -65,7 +64,7 @@ class GatewayIntegrationTest {
         when(walletServiceClient.getWalletInfo(walletId))
                 .thenReturn(Mono.just(walletFromService));
 
-        doNothing().when(eventProducer).sendEvent(any());
+        when(eventProducer.sendEvent(any())).thenReturn(Mono.empty());
 
         webTestClient.post()
                 .uri("/api/v1/wallet")
@@ -0,0 +1,234 @@
+package ru.practicum.wallet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import ru.practicum.ServiceUnavailableException;
+import ru.practicum.enums.OperationStatus;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.WalletEventProducer;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WalletBatchServiceTest {
+
+    @Mock
+    private ReactiveRedisTemplate<String, WalletCacheDto> reactiveRedisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, WalletCacheDto> valueOperations;
+
+    @Mock
+    private WalletServiceClient walletServiceClient;
+
+    @Mock
+    private WalletEventProducer eventProducer;
+
+    @Mock
+    private WalletNearCache nearCache;
+
+    @Mock
+    private WalletCacheWriter cacheWriter;
+
+    @Mock
+    private WalletHoldService holdService;
+
+    @Mock
+    private WalletDtoMapper walletDtoMapper;
+
+    @Spy
+    private WalletCacheFreshness freshness = new WalletCacheFreshness(Duration.ofMinutes(5),
+            Duration.ofSeconds(30), Duration.ofSeconds(60),
+            Duration.ofSeconds(30), Duration.ofSeconds(30),
+            Duration.ofSeconds(60), Duration.ZERO);
+
+    @InjectMocks
+    private WalletBatchService batchService;
+
+    @Test
+    void processOperations_shouldResolveWalletsInBulkAndPublishOnce() {
+        WalletCacheDto cachedWallet = wallet(1000L);
+        WalletCacheDto fetchedWallet = wallet(50L);
+        UUID unknownWalletId = UUID.randomUUID();
+
+        NewWalletOpsRequest deposit = request(cachedWallet.getWalletId(), WalletOperationType.DEPOSIT, 100L);
+        NewWalletOpsRequest withdraw = request(fetchedWallet.getWalletId(), WalletOperationType.WITHDRAW, 100L);
+        NewWalletOpsRequest unknown = request(unknownWalletId, WalletOperationType.DEPOSIT, 100L);
+
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Mono.just(Arrays.asList(cachedWallet, null, null)));
+        when(walletServiceClient.getWalletsInfo(List.of(fetchedWallet.getWalletId(), unknownWalletId)))
+                .thenReturn(Mono.just(List.of(fetchedWallet)));
+        when(cacheWriter.writeAll(List.of(fetchedWallet))).thenReturn(Mono.just(true));
+        when(holdService.reserve(fetchedWallet.getWalletId(), withdraw.getOperationTrackId(), 100L, fetchedWallet))
+                .thenReturn(Mono.just(false));
+        when(eventProducer.sendEventsReportingFailures(anyList())).thenReturn(Mono.just(Set.of()));
+
+        StepVerifier.create(batchService.processOperations(List.of(deposit, withdraw, unknown)))
+                .assertNext(responses -> {
+                    assertEquals(3, responses.size());
+                    assertEquals(OperationStatus.SUCCESS, responses.get(0).getStatus());
+                    assertEquals(OperationStatus.DENIED, responses.get(1).getStatus());
+                    assertEquals(OperationStatus.NOT_FOUND, responses.get(2).getStatus());
+                    assertEquals(deposit.getOperationTrackId(), responses.get(0).getOperationTrackId());
+                })
+                .verifyComplete();
+
+        verify(valueOperations, times(1)).multiGet(anyList());
+        verify(eventProducer, times(1)).sendEventsReportingFailures(argThat(events -> events.size() == 1));
+    }
+
+    @Test
+    void processOperations_shouldDenyAndReleaseOnlyUnacknowledgedOperations() {
+        WalletCacheDto cachedWallet = wallet(1000L);
+        NewWalletOpsRequest published = request(cachedWallet.getWalletId(), WalletOperationType.WITHDRAW, 100L);
+        NewWalletOpsRequest failed = request(cachedWallet.getWalletId(), WalletOperationType.WITHDRAW, 200L);
+
+        when(nearCache.getIfPresent(cachedWallet.getWalletId())).thenReturn(cachedWallet);
+        when(holdService.reserve(eq(cachedWallet.getWalletId()), any(UUID.class), anyLong(), eq(cachedWallet)))
+                .thenReturn(Mono.just(true));
+        when(holdService.release(cachedWallet.getWalletId(), failed.getOperationTrackId()))
+                .thenReturn(Mono.empty());
+        when(eventProducer.sendEventsReportingFailures(anyList()))
+                .thenReturn(Mono.just(Set.of(failed.getOperationTrackId())));
+
+        StepVerifier.create(batchService.processOperations(List.of(published, failed)))
+                .assertNext(responses -> {
+                    assertEquals(OperationStatus.SUCCESS, responses.get(0).getStatus());
+                    assertEquals(OperationStatus.DENIED, responses.get(1).getStatus());
+                })
+                .verifyComplete();
+
+        verify(holdService).release(cachedWallet.getWalletId(), failed.getOperationTrackId());
+        verify(holdService, never()).release(cachedWallet.getWalletId(), published.getOperationTrackId());
+        verify(reactiveRedisTemplate, never()).opsForValue();
+        verify(walletServiceClient, never()).getWalletsInfo(any());
+    }
+
+    @Test
+    void processOperations_shouldDenyOnlyUnresolvedWallets_whenWalletServiceFails() {
+        WalletCacheDto cachedWallet = wallet(1000L);
+        UUID unresolvedWalletId = UUID.randomUUID();
+        NewWalletOpsRequest cached = request(cachedWallet.getWalletId(), WalletOperationType.WITHDRAW, 100L);
+        NewWalletOpsRequest unresolved = request(unresolvedWalletId, WalletOperationType.DEPOSIT, 100L);
+
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Mono.just(Arrays.asList(cachedWallet, null)));
+        when(walletServiceClient.getWalletsInfo(List.of(unresolvedWalletId)))
+                .thenReturn(Mono.error(new ServiceUnavailableException("Wallet service unavailable",
+                        new IllegalStateException("circuit open"))));
+        when(holdService.reserve(cachedWallet.getWalletId(), cached.getOperationTrackId(), 100L, cachedWallet))
+                .thenReturn(Mono.just(true));
+        when(eventProducer.sendEventsReportingFailures(anyList())).thenReturn(Mono.just(Set.of()));
+
+        StepVerifier.create(batchService.processOperations(List.of(cached, unresolved)))
+                .assertNext(responses -> {
+                    assertEquals(OperationStatus.SUCCESS, responses.get(0).getStatus());
+                    assertEquals(OperationStatus.DENIED, responses.get(1).getStatus());
+                })
+                .verifyComplete();
+
+        verify(eventProducer).sendEventsReportingFailures(argThat(events -> events.size() == 1
+                && events.get(0).getOperationTrackId().equals(cached.getOperationTrackId())));
+        verify(holdService, never()).release(any(), any());
+    }
+
+    @Test
+    void processOperations_shouldReleaseReservedHolds_whenPublishFails() {
+        WalletCacheDto cachedWallet = wallet(1000L);
+        NewWalletOpsRequest withdraw = request(cachedWallet.getWalletId(), WalletOperationType.WITHDRAW, 100L);
+        NewWalletOpsRequest denied = request(cachedWallet.getWalletId(), WalletOperationType.WITHDRAW, 5000L);
+
+        when(nearCache.getIfPresent(cachedWallet.getWalletId())).thenReturn(cachedWallet);
+        when(holdService.reserve(cachedWallet.getWalletId(), withdraw.getOperationTrackId(), 100L, cachedWallet))
+                .thenReturn(Mono.just(true));
+        when(holdService.reserve(cachedWallet.getWalletId(), denied.getOperationTrackId(), 5000L, cachedWallet))
+                .thenReturn(Mono.just(false));
+        when(holdService.release(cachedWallet.getWalletId(), withdraw.getOperationTrackId()))
+                .thenReturn(Mono.empty());
+        when(eventProducer.sendEventsReportingFailures(anyList()))
+                .thenReturn(Mono.error(new IllegalStateException("Kafka producer saturated")));
+
+        StepVerifier.create(batchService.processOperations(List.of(withdraw, denied)))
+                .assertNext(responses -> {
+                    assertEquals(OperationStatus.DENIED, responses.get(0).getStatus());
+                    assertEquals(OperationStatus.DENIED, responses.get(1).getStatus());
+                })
+                .verifyComplete();
+
+        verify(holdService).release(cachedWallet.getWalletId(), withdraw.getOperationTrackId());
+        verify(holdService, never()).release(cachedWallet.getWalletId(), denied.getOperationTrackId());
+    }
+
+    @Test
+    void getBalances_shouldReturnKnownWalletsInRequestOrder() {
+        WalletCacheDto nearCached = wallet(100L);
+        WalletCacheDto fetched = wallet(200L);
+        UUID unknownWalletId = UUID.randomUUID();
+
+        when(nearCache.getIfPresent(any(UUID.class))).thenAnswer(invocation ->
+                nearCached.getWalletId().equals(invocation.getArgument(0)) ? nearCached : null);
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Mono.just(Arrays.asList(null, null)));
+        when(walletServiceClient.getWalletsInfo(List.of(fetched.getWalletId(), unknownWalletId)))
+                .thenReturn(Mono.just(List.of(fetched)));
+        when(cacheWriter.writeAll(List.of(fetched))).thenReturn(Mono.just(false));
+        when(walletDtoMapper.toBalanceDto(any(WalletCacheDto.class))).thenAnswer(invocation -> {
+            WalletCacheDto wallet = invocation.getArgument(0);
+            return WalletBalanceDto.builder()
+                    .walletId(wallet.getWalletId())
+                    .balance(wallet.getBalance())
+                    .currency(wallet.getCurrency())
+                    .build();
+        });
+
+        StepVerifier.create(batchService.getBalances(
+                        List.of(fetched.getWalletId(), nearCached.getWalletId(), unknownWalletId)))
+                .assertNext(balances -> {
+                    assertEquals(2, balances.size());
+                    assertEquals(fetched.getWalletId(), balances.get(0).getWalletId());
+                    assertEquals(nearCached.getWalletId(), balances.get(1).getWalletId());
+                })
+                .verifyComplete();
+
+        verify(nearCache, never()).put(fetched);
+    }
+
+    private WalletCacheDto wallet(long balance) {
+        return WalletCacheDto.builder()
+                .walletId(UUID.randomUUID())
+                .balance(balance)
+                .currency("RUB")
+                .build();
+    }
+
+    private NewWalletOpsRequest request(UUID walletId, WalletOperationType type, long amount) {
+        return NewWalletOpsRequest.builder()
+                .walletId(walletId)
+                .operationType(type)
+                .amount(amount)
+                .operationTrackId(UUID.randomUUID())
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.wallet;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WalletCacheFreshnessTest {
+
+    private final WalletCacheFreshness freshness = new WalletCacheFreshness(Duration.ofMinutes(5),
+            Duration.ofSeconds(30), Duration.ofSeconds(60),
+            Duration.ofSeconds(30), Duration.ofSeconds(30),
+            Duration.ofSeconds(60), Duration.ZERO);
+
+    @Test
+    void classify_shouldFollowReadTypePolicy() {
+        WalletCacheDto young = cachedAgo(Duration.ofMinutes(1));
+        WalletCacheDto nearTtl = cachedAgo(Duration.ofSeconds(280));
+        WalletCacheDto pastTtl = cachedAgo(Duration.ofSeconds(320));
+        WalletCacheDto old = cachedAgo(Duration.ofMinutes(7));
+
+        assertEquals(WalletCacheFreshness.State.FRESH, freshness.classify(young, WalletReadType.WITHDRAW));
+        assertEquals(WalletCacheFreshness.State.REFRESH_AHEAD, freshness.classify(nearTtl, WalletReadType.BALANCE));
+        assertEquals(WalletCacheFreshness.State.STALE, freshness.classify(pastTtl, WalletReadType.BALANCE));
+        assertEquals(WalletCacheFreshness.State.STALE, freshness.classify(pastTtl, WalletReadType.OPERATION));
+        assertEquals(WalletCacheFreshness.State.EXPIRED, freshness.classify(pastTtl, WalletReadType.WITHDRAW));
+        assertEquals(WalletCacheFreshness.State.EXPIRED, freshness.classify(old, WalletReadType.BALANCE));
+    }
+
+    @Test
+    void classify_shouldTreatUnstampedEntryAsFresh() {
+        WalletCacheDto wallet = WalletCacheDto.builder().walletId(UUID.randomUUID()).balance(100L).build();
+
+        assertEquals(WalletCacheFreshness.State.FRESH, freshness.classify(wallet, WalletReadType.WITHDRAW));
+    }
+
+    @Test
+    void retention_shouldCoverLargestStalenessBound() {
+        assertEquals(Duration.ofMinutes(6), freshness.retention());
+    }
+
+    private WalletCacheDto cachedAgo(Duration age) {
+        return WalletCacheDto.builder()
+                .walletId(UUID.randomUUID())
+                .balance(100L)
+                .cachedAt(Instant.now().minus(age))
+                .build();
+    }
+}
@@ -1,9 +1,11 @@
 package ru.practicum.wallet;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
@@ -14,12 +16,16 @@ import reactor.test.StepVerifier;
 import ru.practicum.NotFoundException;
 import ru.practicum.enums.OperationStatus;
 import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
 import ru.practicum.kafka.KafkaWalletEvent;
 import ru.practicum.kafka.WalletEventProducer;
 import ru.practicum.redis.WalletCacheDto;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -39,9 +45,36 @@ class WalletCacheServiceTest {
     @Mock
     private WalletEventProducer eventProducer;
 
+    @Mock
+    private WalletNearCache nearCache;
+
+    @Mock
+    private WalletCacheWriter cacheWriter;
+
+    @Mock
+    private WalletDtoMapper walletDtoMapper;
+
+    @Mock
+    private WalletHoldService holdService;
+
+    @Mock
+    private WalletNegativeCache negativeCache;
+
+    @Spy
+    private WalletCacheFreshness freshness = new WalletCacheFreshness(Duration.ofMinutes(5),
+            Duration.ofSeconds(30), Duration.ofSeconds(60),
+            Duration.ofSeconds(30), Duration.ofSeconds(30),
+            Duration.ofSeconds(60), Duration.ZERO);
+
     @InjectMocks
     private WalletCacheService walletCacheService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(negativeCache.isMissing(any())).thenReturn(Mono.just(false));
+        lenient().when(negativeCache.markMissing(any())).thenReturn(Mono.empty());
+    }
+
     @Test
     void processOperation_shouldSendEvent_whenCacheHitAndBalanceSufficient() {
         UUID walletId = UUID.randomUUID();
@@ -59,10 +92,10 @@ class WalletCacheServiceTest {
 
         when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
         when(valueOperations.get(anyString())).thenReturn(Mono.just(cachedWallet));
+        when(holdService.reserve(walletId, request.getOperationTrackId(), 100L, cachedWallet))
+                .thenReturn(Mono.just(true));
 
-        when(valueOperations.delete(anyString())).thenReturn(Mono.just(true));
-
-        doNothing().when(eventProducer).sendEvent(any(KafkaWalletEvent.class));
+        when(eventProducer.sendEvent(any(KafkaWalletEvent.class))).thenReturn(Mono.empty());
 
         Mono<ResponseEntity<OperationResponseDto>> result = walletCacheService.processOperation(request);
 
@@ -74,7 +107,86 @@ class WalletCacheServiceTest {
                 .verifyComplete();
 
         verify(eventProducer).sendEvent(any(KafkaWalletEvent.class));
-        verify(valueOperations).delete(anyString()); // Проверяем что инвалидация вызвалась
+        verify(valueOperations, never()).delete(anyString()); // Кэш обновляется событием баланса, без инвалидации
+    }
+
+    @Test
+    void processOperation_shouldReleaseHold_whenEventSendFails() {
+        UUID walletId = UUID.randomUUID();
+        NewWalletOpsRequest request = NewWalletOpsRequest.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.WITHDRAW)
+                .amount(100L)
+                .build();
+
+        WalletCacheDto cachedWallet = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(1000L)
+                .currency("RUB")
+                .build();
+
+        when(nearCache.getIfPresent(walletId)).thenReturn(cachedWallet);
+        when(holdService.reserve(walletId, request.getOperationTrackId(), 100L, cachedWallet))
+                .thenReturn(Mono.just(true));
+        when(holdService.release(walletId, request.getOperationTrackId())).thenReturn(Mono.empty());
+        when(eventProducer.sendEvent(any()))
+                .thenReturn(Mono.error(new IllegalStateException("Kafka unavailable")));
+
+        StepVerifier.create(walletCacheService.processOperation(request))
+                .expectNextMatches(response -> response.getStatusCode() == HttpStatus.BAD_REQUEST)
+                .verifyComplete();
+
+        verify(holdService).release(walletId, request.getOperationTrackId());
+    }
+
+    @Test
+    void applyBalanceEvent_shouldOnlyReleaseHold_whenWalletIsUnknown() {
+        UUID walletId = UUID.randomUUID();
+        UUID operationTrackId = UUID.randomUUID();
+        KafkaWalletBalanceEvent event = KafkaWalletBalanceEvent.builder()
+                .walletId(walletId)
+                .operationTrackId(operationTrackId)
+                .status(OperationStatus.DENIED)
+                .build();
+
+        when(holdService.settle(walletId, operationTrackId, null, null)).thenReturn(Mono.empty());
+
+        StepVerifier.create(walletCacheService.applyBalanceEvent(event))
+                .verifyComplete();
+
+        verify(holdService).settle(walletId, operationTrackId, null, null);
+        verify(cacheWriter, never()).write(any());
+    }
+
+    @Test
+    void processOperation_shouldSkipRedis_whenNearCacheHit() {
+        UUID walletId = UUID.randomUUID();
+        NewWalletOpsRequest request = NewWalletOpsRequest.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.WITHDRAW)
+                .amount(1000L)
+                .build();
+
+        WalletCacheDto cachedWallet = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(100L)
+                .currency("RUB")
+                .build();
+
+        when(nearCache.getIfPresent(walletId)).thenReturn(cachedWallet);
+        when(holdService.reserve(walletId, request.getOperationTrackId(), 1000L, cachedWallet))
+                .thenReturn(Mono.just(false));
+
+        Mono<ResponseEntity<OperationResponseDto>> result = walletCacheService.processOperation(request);
+
+        StepVerifier.create(result)
+                .expectNextMatches(response ->
+                        response.getStatusCode() == HttpStatus.UNPROCESSABLE_ENTITY
+                )
+                .verifyComplete();
+
+        verify(reactiveRedisTemplate, never()).opsForValue();
+        verify(walletServiceClient, never()).getWalletInfo(any());
     }
 
     @Test
@@ -94,6 +206,8 @@ class WalletCacheServiceTest {
 
         when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
         when(valueOperations.get(anyString())).thenReturn(Mono.just(cachedWallet));
+        when(holdService.reserve(walletId, request.getOperationTrackId(), 1000L, cachedWallet))
+                .thenReturn(Mono.just(false));
 
         Mono<ResponseEntity<OperationResponseDto>> result = walletCacheService.processOperation(request);
 
@@ -124,11 +238,9 @@ class WalletCacheServiceTest {
         when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
         when(valueOperations.get(anyString())).thenReturn(Mono.empty()); // Cache miss
         when(walletServiceClient.getWalletInfo(walletId)).thenReturn(Mono.just(walletFromService));
-        when(valueOperations.set(anyString(), any(), any())).thenReturn(Mono.just(true));
-
-        when(valueOperations.delete(anyString())).thenReturn(Mono.just(true));
+        when(cacheWriter.write(walletFromService)).thenReturn(Mono.just(true));
 
-        doNothing().when(eventProducer).sendEvent(any(KafkaWalletEvent.class));
+        when(eventProducer.sendEvent(any(KafkaWalletEvent.class))).thenReturn(Mono.empty());
 
         Mono<ResponseEntity<OperationResponseDto>> result = walletCacheService.processOperation(request);
 
@@ -137,6 +249,7 @@ class WalletCacheServiceTest {
                 .verifyComplete();
 
         verify(walletServiceClient).getWalletInfo(walletId);
+        verify(nearCache).put(walletFromService);
         verify(eventProducer).sendEvent(any(KafkaWalletEvent.class));
     }
 
@@ -159,5 +272,196 @@ class WalletCacheServiceTest {
         StepVerifier.create(result)
                 .expectNextMatches(response -> response.getStatusCode() == HttpStatus.NOT_FOUND)
                 .verifyComplete();
+
+        verify(negativeCache).markMissing(walletId);
+    }
+
+    @Test
+    void getBalance_shouldServeNegativeCacheHit_withoutCallingWalletService() {
+        UUID walletId = UUID.randomUUID();
+
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(negativeCache.isMissing(walletId)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(walletCacheService.getBalance(walletId))
+                .expectError(NotFoundException.class)
+                .verify();
+
+        verify(walletServiceClient, never()).getWalletInfo(any());
+    }
+
+    @Test
+    void processOperation_shouldCoalesceConcurrentCacheMisses() {
+        UUID walletId = UUID.randomUUID();
+        NewWalletOpsRequest first = NewWalletOpsRequest.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.DEPOSIT)
+                .amount(100L)
+                .build();
+        NewWalletOpsRequest second = NewWalletOpsRequest.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.DEPOSIT)
+                .amount(200L)
+                .build();
+
+        WalletCacheDto walletFromService = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(500L)
+                .currency("RUB")
+                .build();
+
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(walletServiceClient.getWalletInfo(walletId))
+                .thenReturn(Mono.delay(Duration.ofMillis(100)).thenReturn(walletFromService));
+        when(cacheWriter.write(walletFromService)).thenReturn(Mono.just(true));
+        when(eventProducer.sendEvent(any(KafkaWalletEvent.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(Mono.zip(
+                        walletCacheService.processOperation(first),
+                        walletCacheService.processOperation(second)))
+                .expectNextMatches(responses ->
+                        responses.getT1().getStatusCode() == HttpStatus.ACCEPTED &&
+                                responses.getT2().getStatusCode() == HttpStatus.ACCEPTED
+                )
+                .verifyComplete();
+
+        verify(walletServiceClient, times(1)).getWalletInfo(walletId);
+        verify(eventProducer, times(2)).sendEvent(any(KafkaWalletEvent.class));
+        assertEquals(0.5, walletCacheService.coalescingRatio());
+    }
+
+    @Test
+    void applyBalanceEvent_shouldWriteAndInvalidateNearCaches() {
+        UUID walletId = UUID.randomUUID();
+        KafkaWalletBalanceEvent event = KafkaWalletBalanceEvent.builder()
+                .walletId(walletId)
+                .balance(700L)
+                .currency("RUB")
+                .version(3L)
+                .build();
+        WalletCacheDto wallet = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(700L)
+                .currency("RUB")
+                .version(3L)
+                .build();
+
+        when(walletDtoMapper.toCacheDto(event)).thenReturn(wallet);
+        when(cacheWriter.write(wallet)).thenReturn(Mono.just(true));
+        when(nearCache.invalidateEverywhere(walletId)).thenReturn(Mono.empty());
+        when(holdService.settle(walletId, null, 700L, 3L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(walletCacheService.applyBalanceEvent(event))
+                .verifyComplete();
+
+        verify(nearCache).invalidateEverywhere(walletId);
+    }
+
+    @Test
+    void applyBalanceEvent_shouldEvictCachedWallet_whenSuccessCarriesNoBalance() {
+        UUID walletId = UUID.randomUUID();
+        UUID operationTrackId = UUID.randomUUID();
+        KafkaWalletBalanceEvent event = KafkaWalletBalanceEvent.builder()
+                .walletId(walletId)
+                .operationTrackId(operationTrackId)
+                .status(OperationStatus.SUCCESS)
+                .build();
+
+        when(cacheWriter.evict(walletId)).thenReturn(Mono.empty());
+        when(nearCache.invalidateEverywhere(walletId)).thenReturn(Mono.empty());
+        when(holdService.dropFunds(walletId)).thenReturn(Mono.empty());
+        when(holdService.settle(walletId, operationTrackId, null, null)).thenReturn(Mono.empty());
+
+        StepVerifier.create(walletCacheService.applyBalanceEvent(event))
+                .verifyComplete();
+
+        verify(cacheWriter).evict(walletId);
+        verify(nearCache).invalidateEverywhere(walletId);
+        verify(cacheWriter, never()).write(any());
+    }
+
+    @Test
+    void applyBalanceEvent_shouldSkipInvalidation_whenEventIsStale() {
+        UUID walletId = UUID.randomUUID();
+        KafkaWalletBalanceEvent event = KafkaWalletBalanceEvent.builder()
+                .walletId(walletId)
+                .balance(700L)
+                .currency("RUB")
+                .version(1L)
+                .build();
+        WalletCacheDto wallet = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(700L)
+                .currency("RUB")
+                .version(1L)
+                .build();
+
+        when(walletDtoMapper.toCacheDto(event)).thenReturn(wallet);
+        when(cacheWriter.write(wallet)).thenReturn(Mono.just(false));
+        when(holdService.settle(walletId, null, 700L, 1L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(walletCacheService.applyBalanceEvent(event))
+                .verifyComplete();
+
+        verify(nearCache, never()).invalidateEverywhere(any());
+    }
+
+    @Test
+    void getBalance_shouldServeStaleEntryAndRefreshInBackground() {
+        UUID walletId = UUID.randomUUID();
+        WalletCacheDto staleWallet = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(1000L)
+                .currency("RUB")
+                .version(3L)
+                .cachedAt(Instant.now().minus(Duration.ofMinutes(5).plusSeconds(10)))
+                .build();
+        WalletCacheDto refreshed = staleWallet.toBuilder().balance(900L).version(4L).cachedAt(null).build();
+        WalletBalanceDto balance = WalletBalanceDto.builder().walletId(walletId).balance(1000L).currency("RUB").build();
+
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.just(staleWallet));
+        when(walletServiceClient.getWalletInfo(walletId)).thenReturn(Mono.just(refreshed));
+        when(cacheWriter.write(refreshed)).thenReturn(Mono.just(true));
+        when(walletDtoMapper.toBalanceDto(staleWallet)).thenReturn(balance);
+
+        StepVerifier.create(walletCacheService.getBalance(walletId))
+                .expectNextMatches(response -> response.getBody() == balance)
+                .verifyComplete();
+
+        verify(walletServiceClient).getWalletInfo(walletId);
+        verify(nearCache, never()).put(staleWallet);
+        verify(nearCache).put(refreshed);
+    }
+
+    @Test
+    void processOperation_shouldLoadInline_whenEntryTooStaleForWithdraw() {
+        UUID walletId = UUID.randomUUID();
+        NewWalletOpsRequest request = NewWalletOpsRequest.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.WITHDRAW)
+                .amount(100L)
+                .build();
+        WalletCacheDto staleWallet = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(1000L)
+                .currency("RUB")
+                .cachedAt(Instant.now().minus(Duration.ofMinutes(5).plusSeconds(10)))
+                .build();
+        WalletCacheDto walletFromService = staleWallet.toBuilder().balance(50L).cachedAt(null).build();
+
+        when(nearCache.getIfPresent(walletId)).thenReturn(staleWallet);
+        when(walletServiceClient.getWalletInfo(walletId)).thenReturn(Mono.just(walletFromService));
+        when(cacheWriter.write(walletFromService)).thenReturn(Mono.just(true));
+        when(holdService.reserve(walletId, request.getOperationTrackId(), 100L, walletFromService))
+                .thenReturn(Mono.just(false));
+
+        StepVerifier.create(walletCacheService.processOperation(request))
+                .expectNextMatches(response -> response.getStatusCode() == HttpStatus.UNPROCESSABLE_ENTITY)
+                .verifyComplete();
+
+        verify(holdService, never()).reserve(walletId, request.getOperationTrackId(), 100L, staleWallet);
     }
-}
\ No newline at end of file
+}
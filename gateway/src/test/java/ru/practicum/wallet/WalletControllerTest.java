@@ -4,11 +4,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.enums.OperationStatus;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -23,6 +26,12 @@ class WalletControllerTest {
     @MockBean
     private WalletCacheService walletCacheService;
 
+    @MockBean
+    private WalletBatchService walletBatchService;
+
+    @MockBean
+    private WalletServiceClient walletServiceClient;
+
     @Test
     void processOperation_shouldReturnAccepted() {
         // given
@@ -85,4 +94,44 @@ class WalletControllerTest {
                 .exchange()
                 .expectStatus().isNotFound();
     }
-}
\ No newline at end of file
+
+    @Test
+    void processOperation_shouldReturnBadRequest_whenAmountIsNotPositive() {
+        String requestJson = """
+                {
+                    "walletId": "6fa4b687-5063-4da5-9930-faf423953ba3",
+                    "operationType": "DEPOSIT",
+                    "amount": -100
+                }
+                """;
+
+        webTestClient.post()
+                .uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestJson)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.reason").isEqualTo("Incorrect made request");
+    }
+
+    @Test
+    void exportTransactions_shouldPassNdjsonThrough() {
+        UUID walletId = UUID.randomUUID();
+        String lines = "{\"amount\":100}\n{\"amount\":200}\n";
+
+        when(walletServiceClient.getTransactions(walletId, null, null, MediaType.APPLICATION_NDJSON))
+                .thenReturn(Mono.just(org.springframework.http.ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                                lines.getBytes(StandardCharsets.UTF_8))))));
+
+        webTestClient.get()
+                .uri("/api/v1/wallets/{walletId}/transactions", walletId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).isEqualTo(lines);
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.wallet;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletNearCacheTest {
+
+    @Mock
+    private ReactiveStringRedisTemplate stringRedisTemplate;
+
+    private WalletNearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new WalletNearCache(stringRedisTemplate, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void getIfPresent_shouldReturnCachedWallet() {
+        UUID walletId = UUID.randomUUID();
+        WalletCacheDto wallet = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(1000L)
+                .currency("RUB")
+                .build();
+
+        nearCache.put(wallet);
+
+        assertEquals(wallet, nearCache.getIfPresent(walletId));
+    }
+
+    @Test
+    void invalidateEverywhere_shouldEvictLocallyAndPublish() {
+        UUID walletId = UUID.randomUUID();
+        nearCache.put(WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(1000L)
+                .currency("RUB")
+                .build());
+
+        when(stringRedisTemplate.convertAndSend(WalletNearCache.INVALIDATION_CHANNEL, walletId.toString()))
+                .thenReturn(Mono.just(1L));
+
+        StepVerifier.create(nearCache.invalidateEverywhere(walletId))
+                .verifyComplete();
+
+        assertNull(nearCache.getIfPresent(walletId));
+        verify(stringRedisTemplate).convertAndSend(WalletNearCache.INVALIDATION_CHANNEL, walletId.toString());
+    }
+
+    @Test
+    void invalidateEverywhere_shouldCompleteWhenPublishFails() {
+        UUID walletId = UUID.randomUUID();
+
+        when(stringRedisTemplate.convertAndSend(WalletNearCache.INVALIDATION_CHANNEL, walletId.toString()))
+                .thenReturn(Mono.error(new IllegalStateException("Redis down")));
+
+        StepVerifier.create(nearCache.invalidateEverywhere(walletId))
+                .verifyComplete();
+    }
+}
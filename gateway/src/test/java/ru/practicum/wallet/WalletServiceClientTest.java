@@ -0,0 +1,52 @@
+package ru.practicum.wallet;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
+import ru.practicum.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WalletServiceClientTest {
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private WalletServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        client = new WalletServiceClient(WebClient.builder(), HttpClient.create(), circuitBreakerRegistry,
+                BulkheadRegistry.ofDefaults(), "http://localhost:1", Duration.ofSeconds(2));
+    }
+
+    @Test
+    void getWalletInfo_shouldFailFast_whenCircuitIsOpen() {
+        UUID walletId = UUID.randomUUID();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(client.getWalletInfo(walletId))
+                    .expectErrorMatches(e -> !(e instanceof ServiceUnavailableException))
+                    .verify();
+        }
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(WalletServiceClient.RESILIENCE_INSTANCE);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        StepVerifier.create(client.getWalletInfo(walletId))
+                .expectError(ServiceUnavailableException.class)
+                .verify(Duration.ofMillis(500));
+    }
+}
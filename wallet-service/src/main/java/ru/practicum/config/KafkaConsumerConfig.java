@@ -1,48 +1,206 @@
 package ru.practicum.config;
 
+import io.r2dbc.spi.R2dbcTransientException;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import ru.practicum.kafka.KafkaWalletEvent;
+import ru.practicum.kafka.WalletBalanceProducer;
+import ru.practicum.kafka.WalletPartitionOwnership;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 public class KafkaConsumerConfig {
+    public static final String GROUP_ID = "wallet-service";
+    /**
+     * {@code spring.threads.virtual.enabled} on a Java 21 runtime, the condition Boot applies to Tomcat and the
+     * task executors.
+     */
+    public static final String VIRTUAL_THREADS =
+            "#{T(org.springframework.boot.autoconfigure.thread.Threading).VIRTUAL.isActive(environment)}";
 
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${wallet.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${wallet.consumer.mode:RECORD}")
+    private String mode;
+
+    @Value("${wallet.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value(VIRTUAL_THREADS)
+    private boolean virtualThreads;
 
     @Bean
     public ConsumerFactory<String, KafkaWalletEvent> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "wallet-service");
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, GROUP_ID);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // Rebalances only revoke the partitions that move, the others keep consuming with their warm state
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "ru.practicum");
         props.put(JsonDeserializer.TYPE_MAPPINGS, "kafkaWalletEvent:ru.practicum.kafka.KafkaWalletEvent");
 
+        // A malformed payload becomes a null value with the failure in a header instead of failing every poll
         return new DefaultKafkaConsumerFactory<>(props,
                 new StringDeserializer(),
-                new JsonDeserializer<>(KafkaWalletEvent.class));
+                new ErrorHandlingDeserializer<>(new JsonDeserializer<>(KafkaWalletEvent.class)));
     }
 
+    /**
+     * Partition ownership, and the state warmed for it, follows the assignment of the record and lane containers.
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> kafkaListenerContainerFactory(
+            WalletPartitionOwnership partitionOwnership) {
         ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
-        factory.setConcurrency(3);
+        factory.setConcurrency(concurrency);
+        useVirtualThreads(factory);
+        factory.getContainerProperties().setConsumerRebalanceListener(partitionOwnership);
         return factory;
     }
+
+    /**
+     * Moves a failed record to the DLT and publishes a DENIED outcome for its operation.
+     */
+    @Bean
+    public ConsumerRecordRecoverer walletEventDeadLetters(KafkaTemplate<String, Object> kafkaTemplate,
+                                                          WalletBalanceProducer balanceProducer) {
+        DeadLetterPublishingRecoverer deadLetters = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(KafkaProducerConfig.WALLET_EVENT_DLT, -1));
+        return (record, e) -> {
+            deadLetters.accept(record, e);
+            if (record.value() instanceof KafkaWalletEvent event) {
+                balanceProducer.sendDeadLettered(event);
+            }
+        };
+    }
+
+    /**
+     * Error handler of the batch and lane containers, the record container gets its own from the retry topic setup.
+     * Records that cannot be deserialized go straight to the DLT, anything else is retried in place first.
+     * Dead-lettered operations get a DENIED outcome. Transient database failures are never dead-lettered:
+     * recovery refuses them, so the records are redelivered and retried until the database is back.
+     */
+    @Bean
+    public DefaultErrorHandler walletEventErrorHandler(ConsumerRecordRecoverer walletEventDeadLetters) {
+        return new DefaultErrorHandler((record, e) -> {
+            if (isTransient(e)) {
+                throw new IllegalStateException("Transient failure, keeping the record for redelivery", e);
+            }
+            walletEventDeadLetters.accept(record, e);
+        }, new ExponentialBackOffWithMaxRetries(3));
+    }
+
+    /**
+     * Failures that go away with the database outage: R2DBC errors are translated to the same hierarchy.
+     */
+    public static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof R2dbcTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands the listener a whole poll; offsets are committed once the listener returns, i.e. after the DB commit.
+     * Used by the batch and the reactive consumer.
+     */
+    @Bean
+    @ConditionalOnExpression("{'BATCH', 'REACTIVE'}.contains('${wallet.consumer.mode:RECORD}')")
+    public ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> batchKafkaListenerContainerFactory(
+            DefaultErrorHandler walletEventErrorHandler, Environment environment) {
+        requireReactiveProfile(mode, environment);
+        ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        useVirtualThreads(factory);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(walletEventErrorHandler);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchMaxPollRecords));
+        return factory;
+    }
+
+    /**
+     * The reactive consumer only exists in the {@code reactive} profile; without it nothing would consume
+     * {@code wallet_event} at all, so the combination fails the startup.
+     */
+    static void requireReactiveProfile(String mode, Environment environment) {
+        if ("REACTIVE".equals(mode) && !environment.matchesProfiles("reactive")) {
+            throw new IllegalStateException(
+                    "wallet.consumer.mode=REACTIVE requires the reactive profile, wallet_event would not be consumed");
+        }
+    }
+
+    /**
+     * Manual acks from the wallet lanes arrive out of order; with async acks the container defers
+     * each commit until every lower offset of the partition is acknowledged.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "wallet.consumer.mode", havingValue = "LANES")
+    public ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> laneKafkaListenerContainerFactory(
+            DefaultErrorHandler walletEventErrorHandler, WalletPartitionOwnership partitionOwnership) {
+        ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        useVirtualThreads(factory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.getContainerProperties().setConsumerRebalanceListener(partitionOwnership);
+        factory.setCommonErrorHandler(walletEventErrorHandler);
+        return factory;
+    }
+
+    /**
+     * Consumer threads spend most of their time in poll, the JDBC round trips and the {@code @Retryable} backoff;
+     * on virtual threads those waits release the carrier, so raising the concurrency costs no platform threads.
+     */
+    private void useVirtualThreads(ConcurrentKafkaListenerContainerFactory<String, KafkaWalletEvent> factory) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("wallet-consumer-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package ru.practicum.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * R2DBC access of the {@code reactive} profile, next to the JDBC pool the rest of the service keeps using.
+ * The pool is deliberately not a bean: Boot backs its DataSource off when a {@code ConnectionFactory} bean
+ * exists, and its R2DBC transaction manager would stand in for the JPA one, so Boot's R2DBC auto-configuration
+ * is excluded on {@link ru.practicum.WalletServer} and the pool is only reachable through the beans here.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactivePersistenceConfig {
+
+    private final ConnectionPool connectionPool;
+
+    public ReactivePersistenceConfig(@Value("${spring.r2dbc.url}") String url,
+                                     @Value("${spring.r2dbc.username}") String username,
+                                     @Value("${spring.r2dbc.password}") String password,
+                                     @Value("${spring.r2dbc.pool.max-size:20}") int maxSize) {
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(
+                        ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                                .option(ConnectionFactoryOptions.USER, username)
+                                .option(ConnectionFactoryOptions.PASSWORD, password)
+                                .build()))
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+}
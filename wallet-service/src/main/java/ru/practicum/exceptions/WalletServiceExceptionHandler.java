@@ -6,6 +6,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.practicum.BadRequestException;
 import ru.practicum.LowBalanceException;
 import ru.practicum.NotFoundException;
 
@@ -20,6 +21,13 @@ public class WalletServiceExceptionHandler {
         return e.getMessage();
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleBadRequestException(BadRequestException e) {
+        log.error("Bad Request Exception: ", e);
+        return e.getMessage();
+    }
+
     @ExceptionHandler(LowBalanceException.class)
     @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
     public String handleLowBalanceException(LowBalanceException e) {
@@ -0,0 +1,370 @@
+package ru.practicum.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.KafkaConsumerConfig;
+import ru.practicum.config.KafkaProducerConfig;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Adjusts the consumer threads of the {@code wallet_event} container from the group's lag, disabled by default.
+ * Every run samples the committed and end offsets of each partition; the committed offset growth since the
+ * previous run gives the partition's processing rate, and its lag divided by that rate the time its backlog
+ * takes to drain. One consumer is added while the slowest partition's drain time exceeds {@code target-drain-time}.
+ * <p>
+ * Lag is near zero at steady state whatever the thread count, so scaling down looks at rates instead: the best
+ * processing rate per consumer seen so far estimates a consumer's capacity, and one is removed only after
+ * {@code scale-down-samples} consecutive runs in which the produce rate would keep one consumer fewer below
+ * {@code scale-down-utilization} of that capacity.
+ * <p>
+ * The 3.2 container only applies its concurrency on start, so the controller never restarts it: extra consumers
+ * are child containers sharing its listener and properties, started and stopped one at a time. Only the partitions
+ * of the consumer that joins or leaves move, the cooperative assignor leaves the others in place. The container's
+ * own {@code wallet.consumer.concurrency} is the floor. Every instance sees the same group lag, so an instance
+ * only grows to its share of the partitions among the instances in the group (told apart by member host), and
+ * no decision is taken while the group is rebalancing. After a change the instance waits {@code cooldown}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "wallet.consumer.autoscaling.enabled", havingValue = "true")
+public class ConsumerConcurrencyController {
+    private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final Admin admin;
+    private final ConsumerFactory<String, KafkaWalletEvent> consumerFactory;
+    private final int maxConcurrency;
+    private final Duration targetDrainTime;
+    private final long stalledLag;
+    private final int scaleDownSamples;
+    private final double scaleDownUtilization;
+    private final Duration cooldown;
+
+    private final AtomicLong totalLag = new AtomicLong();
+    private final AtomicLong maxPartitionLag = new AtomicLong();
+    private final AtomicLong drainSeconds = new AtomicLong();
+    private final AtomicLong concurrency = new AtomicLong();
+    private final Counter scaledUp;
+    private final Counter scaledDown;
+    private final Deque<KafkaMessageListenerContainer<String, KafkaWalletEvent>> extraConsumers = new ArrayDeque<>();
+
+    private Map<TopicPartition, Long> previousCommitted = Map.of();
+    private Map<TopicPartition, Long> previousEnds = Map.of();
+    private Instant previousSample;
+    private Instant lastChange = Instant.MIN;
+    private double threadCapacity;
+    private int lowLoadSamples;
+
+    public ConsumerConcurrencyController(KafkaListenerEndpointRegistry registry,
+                                         KafkaAdmin kafkaAdmin,
+                                         ConsumerFactory<String, KafkaWalletEvent> consumerFactory,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${wallet.consumer.autoscaling.max-concurrency:12}") int maxConcurrency,
+                                         @Value("${wallet.consumer.autoscaling.target-drain-time:30s}")
+                                         Duration targetDrainTime,
+                                         @Value("${wallet.consumer.autoscaling.stalled-lag:100}") long stalledLag,
+                                         @Value("${wallet.consumer.autoscaling.scale-down-samples:4}")
+                                         int scaleDownSamples,
+                                         @Value("${wallet.consumer.autoscaling.scale-down-utilization:0.5}")
+                                         double scaleDownUtilization,
+                                         @Value("${wallet.consumer.autoscaling.cooldown:2m}") Duration cooldown) {
+        this(registry, Admin.create(kafkaAdmin.getConfigurationProperties()), consumerFactory, meterRegistry,
+                maxConcurrency, targetDrainTime, stalledLag, scaleDownSamples, scaleDownUtilization, cooldown);
+    }
+
+    ConsumerConcurrencyController(KafkaListenerEndpointRegistry registry,
+                                  Admin admin,
+                                  ConsumerFactory<String, KafkaWalletEvent> consumerFactory,
+                                  MeterRegistry meterRegistry,
+                                  int maxConcurrency,
+                                  Duration targetDrainTime,
+                                  long stalledLag,
+                                  int scaleDownSamples,
+                                  double scaleDownUtilization,
+                                  Duration cooldown) {
+        this.registry = registry;
+        this.admin = admin;
+        this.consumerFactory = consumerFactory;
+        this.maxConcurrency = maxConcurrency;
+        this.targetDrainTime = targetDrainTime;
+        this.stalledLag = stalledLag;
+        this.scaleDownSamples = scaleDownSamples;
+        this.scaleDownUtilization = scaleDownUtilization;
+        this.cooldown = cooldown;
+        Gauge.builder("wallet.consumer.lag", totalLag, AtomicLong::get)
+                .description("Records of wallet_event not yet committed by the consumer group")
+                .register(meterRegistry);
+        Gauge.builder("wallet.consumer.lag.max", maxPartitionLag, AtomicLong::get)
+                .description("Lag of the furthest behind wallet_event partition")
+                .register(meterRegistry);
+        Gauge.builder("wallet.consumer.drain-time", drainSeconds, AtomicLong::get)
+                .description("Seconds the slowest wallet_event partition needs to drain its lag at its current rate")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("wallet.consumer.concurrency", concurrency, AtomicLong::get)
+                .description("Consumer threads of the wallet_event container")
+                .register(meterRegistry);
+        this.scaledUp = Counter.builder("wallet.consumer.scaling.decisions").tag("direction", "up")
+                .register(meterRegistry);
+        this.scaledDown = Counter.builder("wallet.consumer.scaling.decisions").tag("direction", "down")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        while (!extraConsumers.isEmpty()) {
+            extraConsumers.pop().stop();
+        }
+        admin.close(ADMIN_TIMEOUT);
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.consumer.autoscaling.interval:PT15S}")
+    public synchronized void adjust() {
+        Optional<ConcurrentMessageListenerContainer<String, KafkaWalletEvent>> container = walletEventContainer();
+        if (container.isEmpty() || !container.get().isRunning()) {
+            while (!extraConsumers.isEmpty()) {
+                extraConsumers.pop().stop();
+            }
+            return;
+        }
+        try {
+            ConsumerGroupDescription group = admin.describeConsumerGroups(List.of(KafkaConsumerConfig.GROUP_ID))
+                    .describedGroups()
+                    .get(KafkaConsumerConfig.GROUP_ID)
+                    .get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (group.state() != ConsumerGroupState.STABLE) {
+                log.debug("Consumer group is {}, keeping concurrency", group.state());
+                return;
+            }
+            int members = Math.max(1, group.members().size());
+            int instances = (int) Math.max(1, group.members().stream()
+                    .map(MemberDescription::host)
+                    .distinct()
+                    .count());
+            Map<TopicPartition, Long> committed = committedOffsets();
+            Map<TopicPartition, Long> ends = endOffsets();
+            int base = container.get().getConcurrency();
+            int current = base + extraConsumers.size();
+            int next = sample(Instant.now(), base, current, members, instances, committed, ends);
+            if (next != current) {
+                resize(container.get(), current, next);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            log.info("Consumer lag unavailable, keeping concurrency", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records one sample of the group's offsets and returns the concurrency to run with.
+     *
+     * @param base      concurrency of the container itself, extra consumers come on top of it
+     * @param members   consumers of the whole group, the offsets and rates are group wide
+     * @param instances instances consuming the group, each takes its share of the partitions
+     * @param committed committed offset of every {@code wallet_event} partition the group has committed,
+     *                  the others count from offset 0
+     * @param ends      end offset of every {@code wallet_event} partition
+     */
+    int sample(Instant now, int base, int current, int members, int instances,
+               Map<TopicPartition, Long> committed, Map<TopicPartition, Long> ends) {
+        Map<TopicPartition, Long> lag = ends.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+                end -> Math.max(0, end.getValue() - committed.getOrDefault(end.getKey(), 0L))));
+        concurrency.set(current);
+        totalLag.set(lag.values().stream().mapToLong(Long::longValue).sum());
+        maxPartitionLag.set(lag.values().stream().mapToLong(Long::longValue).max().orElse(0));
+
+        if (previousSample == null) {
+            drainSeconds.set(0);
+            remember(now, committed, ends);
+            return current;
+        }
+        double seconds = Math.max(1, Duration.between(previousSample, now).toMillis()) / 1000.0;
+        long drainTime = slowestDrainSeconds(committed, previousCommitted, lag, seconds);
+        double processRate = growth(committed, previousCommitted) / seconds;
+        double produceRate = growth(ends, previousEnds) / seconds;
+        drainSeconds.set(drainTime);
+        remember(now, committed, ends);
+        if (now.isBefore(lastChange.plus(cooldown))) {
+            return current;
+        }
+
+        threadCapacity = Math.max(threadCapacity, processRate / members);
+        boolean lowLoad = threadCapacity > 0 && drainTime <= targetDrainTime.toSeconds()
+                && produceRate <= threadCapacity * (members - 1) * scaleDownUtilization;
+        lowLoadSamples = lowLoad ? lowLoadSamples + 1 : 0;
+        int next = nextConcurrency(base, current, drainTime, lowLoadSamples >= scaleDownSamples,
+                Math.max(1, lag.size() / instances));
+        if (next != current) {
+            lastChange = now;
+            lowLoadSamples = 0;
+        }
+        return next;
+    }
+
+    /**
+     * @param drainTime seconds the slowest partition needs to drain its lag, {@link Long#MAX_VALUE} if it made
+     *                  no progress with at least {@code stalled-lag} records behind
+     * @param lowLoad   whether the last {@code scale-down-samples} runs all found one thread fewer enough
+     * @param share     partitions of this instance if the group's partitions were spread evenly
+     */
+    int nextConcurrency(int base, int current, long drainTime, boolean lowLoad, int share) {
+        int upper = Math.max(base, Math.min(maxConcurrency, share));
+        if (current > upper) {
+            return upper;
+        }
+        if (drainTime > targetDrainTime.toSeconds() && current < upper) {
+            return current + 1;
+        }
+        if (lowLoad && current > base) {
+            return current - 1;
+        }
+        return current;
+    }
+
+    /**
+     * Starts or stops extra consumers one at a time; each joins or leaves the group on its own, so only its
+     * partitions move. The newest extra consumer is the first to go.
+     */
+    private void resize(ConcurrentMessageListenerContainer<String, KafkaWalletEvent> container, int current, int next) {
+        log.info("Scaling wallet_event consumers {} -> {}, lag {}, slowest partition drains in {}s",
+                current, next, totalLag.get(), drainSeconds.get());
+        for (int size = current; size < next; size++) {
+            KafkaMessageListenerContainer<String, KafkaWalletEvent> consumer =
+                    new KafkaMessageListenerContainer<>(consumerFactory, container.getContainerProperties());
+            consumer.setBeanName(container.getBeanName() + "-extra-" + size);
+            consumer.setCommonErrorHandler(container.getCommonErrorHandler());
+            consumer.setAfterRollbackProcessor(container.getAfterRollbackProcessor());
+            consumer.setApplicationEventPublisher(container.getApplicationEventPublisher());
+            consumer.start();
+            extraConsumers.push(consumer);
+        }
+        for (int size = current; size > next && !extraConsumers.isEmpty(); size--) {
+            extraConsumers.pop().stop();
+        }
+        concurrency.set(container.getConcurrency() + extraConsumers.size());
+        (next > current ? scaledUp : scaledDown).increment();
+    }
+
+    private void remember(Instant now, Map<TopicPartition, Long> committed, Map<TopicPartition, Long> ends) {
+        previousCommitted = committed;
+        previousEnds = ends;
+        previousSample = now;
+    }
+
+    long slowestDrainSeconds(Map<TopicPartition, Long> committed, Map<TopicPartition, Long> previous,
+                             Map<TopicPartition, Long> lag, double seconds) {
+        long slowest = 0;
+        for (Map.Entry<TopicPartition, Long> partitionLag : lag.entrySet()) {
+            long position = committed.getOrDefault(partitionLag.getKey(), 0L);
+            long progressed = position - previous.getOrDefault(partitionLag.getKey(), position);
+            if (progressed <= 0 && partitionLag.getValue() < stalledLag) {
+                continue;
+            }
+            long drainTime = progressed > 0
+                    ? (long) (partitionLag.getValue() / (progressed / seconds))
+                    : Long.MAX_VALUE;
+            slowest = Math.max(slowest, drainTime);
+        }
+        return slowest;
+    }
+
+    /**
+     * Offsets gained across the partitions present in both samples.
+     */
+    private static long growth(Map<TopicPartition, Long> offsets, Map<TopicPartition, Long> previous) {
+        long growth = 0;
+        for (Map.Entry<TopicPartition, Long> offset : offsets.entrySet()) {
+            Long before = previous.get(offset.getKey());
+            if (before != null) {
+                growth += Math.max(0, offset.getValue() - before);
+            }
+        }
+        return growth;
+    }
+
+    private Map<TopicPartition, Long> committedOffsets()
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Map<TopicPartition, OffsetAndMetadata> offsets = admin.listConsumerGroupOffsets(KafkaConsumerConfig.GROUP_ID)
+                .partitionsToOffsetAndMetadata()
+                .get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        Map<TopicPartition, Long> committed = new HashMap<>();
+        offsets.forEach((partition, offset) -> {
+            if (offset != null && KafkaProducerConfig.WALLET_EVENT_TOPIC.equals(partition.topic())) {
+                committed.put(partition, offset.offset());
+            }
+        });
+        return committed;
+    }
+
+    /**
+     * End offset of every {@code wallet_event} partition.
+     */
+    private Map<TopicPartition, Long> endOffsets()
+            throws ExecutionException, InterruptedException, TimeoutException {
+        List<TopicPartition> partitions = admin.describeTopics(List.of(KafkaProducerConfig.WALLET_EVENT_TOPIC))
+                .allTopicNames()
+                .get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .get(KafkaProducerConfig.WALLET_EVENT_TOPIC)
+                .partitions().stream()
+                .map(info -> new TopicPartition(KafkaProducerConfig.WALLET_EVENT_TOPIC, info.partition()))
+                .toList();
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(partitions.stream()
+                        .collect(Collectors.toMap(Function.identity(), partition -> OffsetSpec.latest())))
+                .all()
+                .get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        return partitions.stream().collect(Collectors.toMap(Function.identity(),
+                partition -> ends.get(partition).offset()));
+    }
+
+    /**
+     * Container of the {@code wallet_event} listener, every container factory builds it on {@link #consumerFactory}.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<ConcurrentMessageListenerContainer<String, KafkaWalletEvent>> walletEventContainer() {
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            String[] topics = container.getContainerProperties().getTopics();
+            if (container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent
+                    && topics != null && topics.length == 1
+                    && KafkaProducerConfig.WALLET_EVENT_TOPIC.equals(topics[0])) {
+                return Optional.of((ConcurrentMessageListenerContainer<String, KafkaWalletEvent>) concurrent);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.enums.OperationStatus;
+
+import static ru.practicum.config.KafkaProducerConfig.WALLET_BALANCE_TOPIC;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WalletBalanceProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @TransactionalEventListener
+    public void onBalanceCommitted(KafkaWalletBalanceEvent event) {
+        send(event);
+    }
+
+    /**
+     * Terminal outcome of an operation given up on and dead-lettered, so the gateway releases its hold and the
+     * client learns the result. Carries no wallet state: the failure may be the database itself.
+     */
+    public void sendDeadLettered(KafkaWalletEvent event) {
+        send(KafkaWalletBalanceEvent.builder()
+                .walletId(event.getWalletId())
+                .operationTrackId(event.getOperationTrackId())
+                .status(OperationStatus.DENIED)
+                .build());
+    }
+
+    public void send(KafkaWalletBalanceEvent event) {
+        String key = event.getWalletId().toString();
+
+        kafkaTemplate.send(WALLET_BALANCE_TOPIC, key, event)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        log.error("Send balance event failed for wallet {}", key, error);
+                    } else {
+                        log.info("Send balance event success. Wallet {}, status {}, version {}, partition {}, offset {}",
+                                key, event.getStatus(), event.getVersion(),
+                                result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                    }
+                });
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+import ru.practicum.transaction.RecentOperations;
+import ru.practicum.wallet.WalletBatchService;
+
+import java.util.List;
+
+/**
+ * Batch consumer, active with {@code wallet.consumer.mode=BATCH}: a whole poll is applied in one DB transaction.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "wallet.consumer.mode", havingValue = "BATCH")
+public class WalletEventBatchConsumer {
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(WalletEventBatchConsumer.class);
+
+    private final WalletBatchService walletBatchService;
+    private final RecentOperations recentOperations;
+
+    /**
+     * A record that failed to deserialize splits the batch: the records before it are applied, then the failure
+     * is reported at its index so the error handler sends it to the DLT and redelivers the rest.
+     */
+    @KafkaListener(topics = "wallet_event", groupId = "wallet-service",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void processWalletOperations(List<ConsumerRecord<String, KafkaWalletEvent>> records) {
+        log.info("Received batch of {} events", records.size());
+        int poisonIndex = -1;
+        for (int i = 0; i < records.size() && poisonIndex < 0; i++) {
+            if (records.get(i).value() == null) {
+                poisonIndex = i;
+            }
+        }
+
+        List<KafkaWalletEvent> events = records.subList(0, poisonIndex < 0 ? records.size() : poisonIndex).stream()
+                .map(ConsumerRecord::value)
+                .toList();
+        apply(events);
+
+        if (poisonIndex >= 0) {
+            ConsumerRecord<String, KafkaWalletEvent> poison = records.get(poisonIndex);
+            throw new BatchListenerFailedException("Undeserializable wallet event",
+                    SerializationUtils.getExceptionFromHeader(poison,
+                            SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR),
+                    poisonIndex);
+        }
+    }
+
+    private void apply(List<KafkaWalletEvent> events) {
+        List<KafkaWalletEvent> pending = events.stream()
+                .filter(event -> !recentOperations.contains(event.getOperationTrackId()))
+                .toList();
+        if (pending.size() < events.size()) {
+            log.info("Skipping {} redelivered operations", events.size() - pending.size());
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        walletBatchService.applyEvents(pending);
+        pending.forEach(event -> recentOperations.remember(event.getOperationTrackId()));
+    }
+}
@@ -3,22 +3,58 @@ package ru.practicum.kafka;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.SameIntervalTopicReuseStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
-import ru.practicum.wallet.WalletService;
+import ru.practicum.LowBalanceException;
+import ru.practicum.NotFoundException;
 
+/**
+ * Record-at-a-time consumer, active unless {@code wallet.consumer.mode} selects another mode.
+ * Failed records move to delayed retry topics and finally to {@code wallet_event-dlt}, so the main topic
+ * keeps flowing; records that cannot be deserialized go to the DLT right away.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "wallet.consumer.mode", havingValue = "RECORD", matchIfMissing = true)
 public class WalletEventConsumer {
 
-    private final WalletService walletService;
+    private final WalletEventHandler eventHandler;
+    private final WalletBalanceProducer balanceProducer;
 
 
+    @RetryableTopic(attempts = "${wallet.consumer.retry.attempts:4}",
+            backoff = @Backoff(delayExpression = "${wallet.consumer.retry.delay:1000}",
+                    multiplierExpression = "${wallet.consumer.retry.multiplier:5}"),
+            sameIntervalTopicReuseStrategy = SameIntervalTopicReuseStrategy.SINGLE_TOPIC,
+            exclude = {LowBalanceException.class, NotFoundException.class},
+            dltStrategy = DltStrategy.FAIL_ON_ERROR,
+            kafkaTemplate = "kafkaTemplate")
     @KafkaListener(topics = "wallet_event", groupId = "wallet-service")
     public void processWalletOperation(KafkaWalletEvent event) {
         log.info("Received event: {}", event);
-        walletService.updateBalanceFromEvent(event);
+        eventHandler.handle(event);
+    }
+
+    /**
+     * Publishes a DENIED outcome for the dead-lettered operation; undeserializable records carry no ids to report.
+     */
+    @DltHandler
+    public void onDeadLetter(KafkaWalletEvent event,
+                             @Header(name = KafkaHeaders.EXCEPTION_MESSAGE, required = false) String error) {
+        log.error("Operation {} moved to dead-letter topic: {}",
+                event == null ? null : event.getOperationTrackId(), error);
+        if (event != null) {
+            balanceProducer.sendDeadLettered(event);
+        }
     }
 
 }
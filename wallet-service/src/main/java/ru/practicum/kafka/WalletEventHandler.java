@@ -0,0 +1,36 @@
+package ru.practicum.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.LowBalanceException;
+import ru.practicum.NotFoundException;
+import ru.practicum.transaction.RecentOperations;
+import ru.practicum.wallet.WalletService;
+
+/**
+ * Applies one wallet event and publishes its outcome; shared by the record and lane consumers.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WalletEventHandler {
+
+    private final WalletService walletService;
+    private final WalletBalanceProducer balanceProducer;
+    private final RecentOperations recentOperations;
+
+    public void handle(KafkaWalletEvent event) {
+        if (recentOperations.contains(event.getOperationTrackId())) {
+            log.info("Skipping redelivered operation {}", event.getOperationTrackId());
+            return;
+        }
+        try {
+            walletService.updateBalanceFromEvent(event);
+        } catch (LowBalanceException | NotFoundException e) {
+            log.info("Operation {} rejected: {}", event.getOperationTrackId(), e.getMessage());
+            balanceProducer.send(walletService.rejectionOf(event));
+        }
+        recentOperations.remember(event.getOperationTrackId());
+    }
+}
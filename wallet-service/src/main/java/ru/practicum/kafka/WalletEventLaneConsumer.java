@@ -0,0 +1,90 @@
+package ru.practicum.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.KafkaConsumerConfig;
+
+import java.time.Duration;
+
+/**
+ * Lane consumer, active with {@code wallet.consumer.mode=LANES}: records are handed to per-wallet lanes and
+ * acknowledged when their lane is done. The container commits out-of-order acks only up to the lowest
+ * offset that is not yet processed, so a restart redelivers from the first unfinished record.
+ * A lane cannot hand a record back to the container, so it settles every record itself: transient database
+ * failures are retried in place up to {@code wallet.consumer.lanes.max-attempts}, anything else, and a transient
+ * failure that outlasts the attempts, goes to the DLT with a DENIED outcome like in the other modes.
+ * Either way the record is acknowledged and its partition keeps committing.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "wallet.consumer.mode", havingValue = "LANES")
+public class WalletEventLaneConsumer {
+
+    private final WalletEventHandler eventHandler;
+    private final WalletLanes lanes;
+    private final ConsumerRecordRecoverer deadLetters;
+    private final int maxAttempts;
+    private final Duration maxBackoff;
+
+    public WalletEventLaneConsumer(WalletEventHandler eventHandler,
+                                   WalletLanes lanes,
+                                   ConsumerRecordRecoverer walletEventDeadLetters,
+                                   @Value("${wallet.consumer.lanes.max-attempts:5}") int maxAttempts,
+                                   @Value("${wallet.consumer.lanes.max-backoff:5s}") Duration maxBackoff) {
+        this.eventHandler = eventHandler;
+        this.lanes = lanes;
+        this.deadLetters = walletEventDeadLetters;
+        this.maxAttempts = maxAttempts;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @KafkaListener(topics = "wallet_event", groupId = "wallet-service",
+            containerFactory = "laneKafkaListenerContainerFactory")
+    public void processWalletOperation(ConsumerRecord<String, KafkaWalletEvent> record,
+                                       Acknowledgment acknowledgment) {
+        KafkaWalletEvent event = record.value();
+        log.info("Received event: {}", event);
+        lanes.submit(event.getWalletId(), () -> {
+            if (settle(record)) {
+                acknowledgment.acknowledge();
+            }
+        });
+    }
+
+    /**
+     * Retries transient failures in place; only the lane of this wallet waits meanwhile.
+     *
+     * @return {@code false} if the lane was interrupted before the record was settled
+     */
+    private boolean settle(ConsumerRecord<String, KafkaWalletEvent> record) {
+        KafkaWalletEvent event = record.value();
+        Duration backoff = Duration.ofMillis(100);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                eventHandler.handle(event);
+                return true;
+            } catch (RuntimeException e) {
+                if (!KafkaConsumerConfig.isTransient(e) || attempt >= maxAttempts) {
+                    log.error("Operation {} failed after {} attempt(s), moving it to the dead-letter topic",
+                            event.getOperationTrackId(), attempt, e);
+                    deadLetters.accept(record, e);
+                    return true;
+                }
+                log.error("Operation {} failed, retrying in {}", event.getOperationTrackId(), backoff, e);
+            }
+            try {
+                Thread.sleep(backoff.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.practicum.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.transaction.RecentOperations;
+import ru.practicum.wallet.ReactiveWalletService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reactive consumer of the {@code reactive} profile, active with {@code wallet.consumer.mode=REACTIVE}.
+ * A poll is split per wallet: events of one wallet are applied one after another in topic order, different
+ * wallets run concurrently on R2DBC, each event in its own transaction. Offsets are committed once the whole
+ * poll is done, a failure redelivers the poll and recorded operations are skipped as duplicates.
+ */
+@Component
+@Slf4j
+@Profile("reactive")
+@ConditionalOnProperty(name = "wallet.consumer.mode", havingValue = "REACTIVE")
+public class WalletEventReactiveConsumer {
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(WalletEventReactiveConsumer.class);
+
+    private final ReactiveWalletService walletService;
+    private final WalletBalanceProducer balanceProducer;
+    private final RecentOperations recentOperations;
+    private final int maxConcurrency;
+
+    public WalletEventReactiveConsumer(ReactiveWalletService walletService,
+                                       WalletBalanceProducer balanceProducer,
+                                       RecentOperations recentOperations,
+                                       @Value("${wallet.consumer.reactive.max-concurrency:64}") int maxConcurrency) {
+        this.walletService = walletService;
+        this.balanceProducer = balanceProducer;
+        this.recentOperations = recentOperations;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * A record that failed to deserialize splits the batch as in {@link WalletEventBatchConsumer}.
+     */
+    @KafkaListener(topics = "wallet_event", groupId = "wallet-service",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void processWalletOperations(List<ConsumerRecord<String, KafkaWalletEvent>> records) {
+        log.info("Received batch of {} events", records.size());
+        int poisonIndex = -1;
+        for (int i = 0; i < records.size() && poisonIndex < 0; i++) {
+            if (records.get(i).value() == null) {
+                poisonIndex = i;
+            }
+        }
+
+        apply(records.subList(0, poisonIndex < 0 ? records.size() : poisonIndex).stream()
+                .map(ConsumerRecord::value)
+                .toList());
+
+        if (poisonIndex >= 0) {
+            ConsumerRecord<String, KafkaWalletEvent> poison = records.get(poisonIndex);
+            throw new BatchListenerFailedException("Undeserializable wallet event",
+                    SerializationUtils.getExceptionFromHeader(poison,
+                            SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR),
+                    poisonIndex);
+        }
+    }
+
+    private void apply(List<KafkaWalletEvent> events) {
+        Map<UUID, List<KafkaWalletEvent>> byWallet = new LinkedHashMap<>();
+        for (KafkaWalletEvent event : events) {
+            if (recentOperations.contains(event.getOperationTrackId())) {
+                log.info("Skipping redelivered operation {}", event.getOperationTrackId());
+                continue;
+            }
+            byWallet.computeIfAbsent(event.getWalletId(), walletId -> new ArrayList<>()).add(event);
+        }
+        if (byWallet.isEmpty()) {
+            return;
+        }
+
+        Flux.fromIterable(byWallet.values())
+                .flatMap(walletEvents -> Flux.fromIterable(walletEvents).concatMap(this::apply), maxConcurrency)
+                .then()
+                .block();
+    }
+
+    private Mono<Void> apply(KafkaWalletEvent event) {
+        return walletService.applyEvent(event)
+                .doOnNext(balanceProducer::send)
+                .then(Mono.fromRunnable(() -> recentOperations.remember(event.getOperationTrackId())));
+    }
+}
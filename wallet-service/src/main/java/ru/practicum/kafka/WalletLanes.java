@@ -0,0 +1,87 @@
+package ru.practicum.kafka;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.KafkaConsumerConfig;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of single-threaded executors; a wallet id always hashes to the same lane, so events of one
+ * wallet run one at a time in submission order while unrelated wallets run in parallel.
+ * Lane queues are bounded: a full lane blocks the submitting consumer thread.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "wallet.consumer.mode", havingValue = "LANES")
+public class WalletLanes {
+    private final ExecutorService[] lanes;
+
+    /**
+     * @param virtualThreads lanes run on virtual threads, an idle lane then costs no platform thread
+     */
+    public WalletLanes(@Value("${wallet.consumer.lanes.count:64}") int laneCount,
+                       @Value("${wallet.consumer.lanes.queue-capacity:1000}") int queueCapacity,
+                       @Value(KafkaConsumerConfig.VIRTUAL_THREADS) boolean virtualThreads) {
+        ThreadFactory threadFactory = virtualThreads
+                ? new VirtualThreadTaskExecutor("wallet-lane-").getVirtualThreadFactory()
+                : platformThreadFactory();
+        this.lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    threadFactory,
+                    WalletLanes::blockUntilQueued);
+        }
+    }
+
+    public void submit(UUID walletId, Runnable task) {
+        lanes[Math.floorMod(walletId.hashCode(), lanes.length)].execute(task);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            if (!lane.awaitTermination(Duration.ofSeconds(10).toMillis(), TimeUnit.MILLISECONDS)) {
+                log.info("Wallet lane did not drain in time, unacknowledged events will be redelivered");
+                lane.shutdownNow();
+            }
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "wallet-lane-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("Wallet lane is shut down");
+        }
+        try {
+            lane.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a wallet lane", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.practicum.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.KafkaProducerConfig;
+import ru.practicum.transaction.RecentOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Primes the duplicate check for {@code wallet_event} partitions newly assigned to this instance, before their first
+ * poll. With the cooperative sticky assignor only moved partitions are revoked, so only those are warmed.
+ * Warm-up reads the ledger rows of the last {@code wallet.consumer.warm-up.window}, at most
+ * {@code max-rows-per-partition} per partition of the topic, so the work inside the rebalance callback does not
+ * grow with the ledger. The track ids of rows whose wallet hashes to an owned partition go to the global
+ * {@link RecentOperations} LRU; no per-partition state is kept, and nothing is dropped when a partition is revoked.
+ * Warm-up is best effort, on failure the LRU fills lazily as before.
+ */
+@Component
+@Slf4j
+public class WalletPartitionOwnership implements ConsumerAwareRebalanceListener {
+    private static final String RECENT_OPERATIONS_SQL = "SELECT wallet_id, operation_track_id FROM transactions "
+            + "WHERE created_at > ? ORDER BY created_at DESC LIMIT ?";
+
+    private final RecentOperations recentOperations;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration window;
+    private final int maxRowsPerPartition;
+
+    public WalletPartitionOwnership(RecentOperations recentOperations,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${wallet.consumer.warm-up.window:5m}") Duration window,
+                                    @Value("${wallet.consumer.warm-up.max-rows-per-partition:500}") int maxRowsPerPartition) {
+        this.recentOperations = recentOperations;
+        this.jdbcTemplate = jdbcTemplate;
+        this.window = window;
+        this.maxRowsPerPartition = maxRowsPerPartition;
+    }
+
+    /**
+     * Partition of a wallet as chosen by the default producer partitioner for the {@code walletId} record key.
+     */
+    public static int partitionOf(UUID walletId, int partitionCount) {
+        return Utils.toPositive(Utils.murmur2(walletId.toString().getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> assigned) {
+        Set<Integer> partitions = walletEventPartitions(assigned);
+        if (partitions.isEmpty()) {
+            return;
+        }
+        List<PartitionInfo> partitionInfos = consumer.partitionsFor(KafkaProducerConfig.WALLET_EVENT_TOPIC);
+        if (partitionInfos == null || partitionInfos.isEmpty()) {
+            return;
+        }
+        try {
+            warmUp(partitions, partitionInfos.size());
+        } catch (RuntimeException e) {
+            log.info("Warm-up of partitions {} failed, state will fill lazily", partitions, e);
+        }
+    }
+
+    private void warmUp(Set<Integer> partitions, int partitionCount) {
+        // Wallets spread evenly over the partitions, so this limit yields about the budget for each of them
+        Map<UUID, Integer> walletPartitions = new HashMap<>();
+        Map<Integer, Integer> operations = new HashMap<>();
+        jdbcTemplate.query(RECENT_OPERATIONS_SQL, rs -> {
+            UUID walletId = rs.getObject("wallet_id", UUID.class);
+            Integer partition = walletPartitions.computeIfAbsent(walletId, id -> partitionOf(id, partitionCount));
+            if (partitions.contains(partition) && operations.merge(partition, 1, Integer::sum) <= maxRowsPerPartition) {
+                recentOperations.remember(rs.getObject("operation_track_id", UUID.class));
+            }
+        }, Timestamp.from(Instant.now().minus(window)), (long) maxRowsPerPartition * partitionCount);
+        log.info("Warmed partitions {} with {} recent operations", partitions, operations.values().stream()
+                .mapToInt(count -> Math.min(count, maxRowsPerPartition))
+                .sum());
+    }
+
+    private static Set<Integer> walletEventPartitions(Collection<TopicPartition> topicPartitions) {
+        return topicPartitions.stream()
+                .filter(topicPartition -> KafkaProducerConfig.WALLET_EVENT_TOPIC.equals(topicPartition.topic()))
+                .map(TopicPartition::partition)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.transaction;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Unique operation track id of a ledger row. {@code transactions} is partitioned by {@code created_at}
+ * and cannot enforce uniqueness of the track id on its own.
+ */
+@Entity
+@Table(name = "operation_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class OperationKey {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private UUID operationTrackId;
+
+    private Instant createdAt;
+}
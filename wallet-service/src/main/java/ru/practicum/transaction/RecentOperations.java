@@ -0,0 +1,32 @@
+package ru.practicum.transaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Bounded LRU of operation track ids whose outcome was committed and published by this instance.
+ * Lets Kafka redeliveries be dropped without a database round trip; a miss falls back to the
+ * ledger's unique constraint.
+ */
+@Component
+public class RecentOperations {
+    private final Cache<UUID, Boolean> trackIds;
+
+    public RecentOperations(@Value("${wallet.consumer.recent-operations.max-size:100000}") long maxSize) {
+        this.trackIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public boolean contains(UUID operationTrackId) {
+        return trackIds.getIfPresent(operationTrackId) != null;
+    }
+
+    public void remember(UUID operationTrackId) {
+        trackIds.put(operationTrackId, Boolean.TRUE);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.transaction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/wallets/{walletId}/transactions")
+@Slf4j
+@RequiredArgsConstructor
+public class TransactionController {
+
+    private static final int MAX_PAGE = 1000;
+
+    private final TransactionHistoryService historyService;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TransactionPageDto> getTransactions(
+            @PathVariable UUID walletId,
+            @RequestParam(required = false) TransactionCursor cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        log.info("getTransactions: {}, cursor {}, limit {}", walletId, cursor, limit);
+        return ResponseEntity.ok().body(historyService.getPage(walletId, cursor, Math.max(1, Math.min(limit, MAX_PAGE))));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @PathVariable UUID walletId,
+            @RequestParam(required = false) TransactionCursor cursor) {
+
+        log.info("exportTransactions: {}, cursor {}", walletId, cursor);
+        historyService.requireWallet(walletId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> historyService.export(walletId, cursor, out));
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.transaction;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in a wallet's history: the {@code (created_at, id)} of the last transaction read.
+ * Bound from the {@code cursor} request parameter through {@link #valueOf}, a malformed cursor is a bad request.
+ */
+@Value
+public class TransactionCursor {
+    private static final char SEPARATOR = '|';
+
+    Instant createdAt;
+    UUID id;
+
+    public static TransactionCursor of(TransactionDto transaction) {
+        return new TransactionCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+
+    public static TransactionCursor valueOf(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed transaction cursor: " + cursor);
+        }
+        return new TransactionCursor(Instant.parse(decoded.substring(0, separator)),
+                UUID.fromString(decoded.substring(separator + 1)));
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt.toString() + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
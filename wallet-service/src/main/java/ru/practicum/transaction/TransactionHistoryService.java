@@ -0,0 +1,138 @@
+package ru.practicum.transaction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.NotFoundException;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.wallet.WalletRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wallet history read newest first with keyset pagination on {@code (wallet_id, created_at, id)}, so every page
+ * costs one index range scan regardless of its depth. The export streams the same order from a server-side
+ * cursor, holding only one fetch of rows in memory.
+ */
+@Service
+@Slf4j
+public class TransactionHistoryService {
+    private static final String SELECT_SQL = "SELECT id, wallet_id, operation_type, amount, previous_balance, "
+            + "new_balance, operation_track_id, created_at FROM transactions WHERE wallet_id = ? ";
+    private static final String AFTER_CURSOR_SQL = "AND (created_at, id) < (?, ?) ";
+    private static final String ORDER_SQL = "ORDER BY created_at DESC, id DESC";
+
+    private static final RowMapper<TransactionDto> ROW_MAPPER = TransactionHistoryService::mapRow;
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletRepository walletRepository;
+    private final ObjectMapper objectMapper;
+    private final int exportFetchSize;
+
+    public TransactionHistoryService(JdbcTemplate jdbcTemplate,
+                                     WalletRepository walletRepository,
+                                     ObjectMapper objectMapper,
+                                     @Value("${wallet.history.export-fetch-size:1000}") int exportFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletRepository = walletRepository;
+        this.objectMapper = objectMapper;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    /**
+     * @param after position returned with the previous page, {@code null} for the newest transactions
+     */
+    @Transactional(readOnly = true)
+    public TransactionPageDto getPage(UUID walletId, TransactionCursor after, int limit) {
+        requireWallet(walletId);
+        List<Object> args = arguments(walletId, after);
+        args.add(limit + 1);
+        List<TransactionDto> transactions = new ArrayList<>(jdbcTemplate.query(sql(after) + " LIMIT ?",
+                ROW_MAPPER, args.toArray()));
+
+        String nextCursor = null;
+        if (transactions.size() > limit) {
+            transactions.remove(limit);
+            nextCursor = TransactionCursor.of(transactions.get(limit - 1)).encode();
+        }
+        log.info("Read {} transactions of wallet {}", transactions.size(), walletId);
+        return TransactionPageDto.builder()
+                .transactions(transactions)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Writes the history from {@code after} on as newline-delimited JSON. Runs inside a read-only transaction,
+     * which the Postgres driver needs to fetch through a cursor instead of materializing the result.
+     */
+    @Transactional(readOnly = true)
+    public void export(UUID walletId, TransactionCursor after, OutputStream out) {
+        Object[] args = arguments(walletId, after).toArray();
+        RowCallbackHandler writer = rs -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(mapRow(rs, 0)));
+                out.write(LINE_SEPARATOR);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql(after), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(exportFetchSize);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, writer);
+        log.info("Exported transactions of wallet {}", walletId);
+    }
+
+    public void requireWallet(UUID walletId) {
+        if (!walletRepository.existsById(walletId)) {
+            throw new NotFoundException("Wallet with id: " + walletId + " not found");
+        }
+    }
+
+    private static String sql(TransactionCursor after) {
+        return SELECT_SQL + (after == null ? "" : AFTER_CURSOR_SQL) + ORDER_SQL;
+    }
+
+    private static List<Object> arguments(UUID walletId, TransactionCursor after) {
+        List<Object> args = new ArrayList<>(4);
+        args.add(walletId);
+        if (after != null) {
+            args.add(Timestamp.from(after.getCreatedAt()));
+            args.add(after.getId());
+        }
+        return args;
+    }
+
+    private static TransactionDto mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return TransactionDto.builder()
+                .id(rs.getObject("id", UUID.class))
+                .walletId(rs.getObject("wallet_id", UUID.class))
+                .operationType(WalletOperationType.valueOf(rs.getString("operation_type")))
+                .amount(rs.getLong("amount"))
+                .previousBalance(rs.getObject("previous_balance", Long.class))
+                .newBalance(rs.getObject("new_balance", Long.class))
+                .operationTrackId(rs.getObject("operation_track_id", UUID.class))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .build();
+    }
+}
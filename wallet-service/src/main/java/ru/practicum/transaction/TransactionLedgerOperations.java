@@ -0,0 +1,11 @@
+package ru.practicum.transaction;
+
+public interface TransactionLedgerOperations {
+
+    /**
+     * Inserts the ledger row unless one with the same operation track id exists.
+     *
+     * @return {@code true} if the row was inserted, {@code false} if the operation was already recorded
+     */
+    boolean insertIfAbsent(Transaction transaction);
+}
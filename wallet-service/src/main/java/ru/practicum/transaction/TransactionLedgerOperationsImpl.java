@@ -0,0 +1,32 @@
+package ru.practicum.transaction;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+
+@RequiredArgsConstructor
+class TransactionLedgerOperationsImpl implements TransactionLedgerOperations {
+    private static final String INSERT_IF_ABSENT_SQL =
+            "WITH track AS (INSERT INTO operation_keys (operation_track_id, created_at) VALUES (?, ?) "
+                    + "ON CONFLICT (operation_track_id) DO NOTHING RETURNING operation_track_id) "
+                    + "INSERT INTO transactions (id, wallet_id, operation_type, amount, previous_balance, new_balance, "
+                    + "operation_track_id, created_at) SELECT ?, ?, ?, ?, ?, ?, operation_track_id, ? FROM track";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean insertIfAbsent(Transaction transaction) {
+        Timestamp createdAt = Timestamp.from(transaction.getCreatedAt());
+        return jdbcTemplate.update(INSERT_IF_ABSENT_SQL,
+                transaction.getOperationTrackId(),
+                createdAt,
+                transaction.getId(),
+                transaction.getWallet().getId(),
+                transaction.getWalletOperationType().name(),
+                transaction.getAmount(),
+                transaction.getPreviousBalance(),
+                transaction.getNewBalance(),
+                createdAt) == 1;
+    }
+}
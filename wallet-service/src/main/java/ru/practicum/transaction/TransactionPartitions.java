@@ -0,0 +1,130 @@
+package ru.practicum.transaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maintenance of the monthly {@code transactions} partitions: keeps partitions created ahead of time and
+ * folds partitions older than the retention period into {@code wallet_transaction_summaries} before
+ * detaching (and by default dropping) them. Every step runs under a transaction-scoped advisory lock,
+ * so only one wallet-service instance does the work.
+ */
+@Component
+@Slf4j
+public class TransactionPartitions {
+    static final String PARTITION_PREFIX = "transactions_p";
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final long MAINTENANCE_LOCK_ID = 0x7472616E73L;
+
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+    private static final String ENSURE_SQL = "SELECT ensure_transactions_partitions("
+            + "LOCALTIMESTAMP - INTERVAL '1 month', LOCALTIMESTAMP + make_interval(months => ?))";
+    private static final String PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'transactions'::regclass ORDER BY c.relname";
+    private static final String SUMMARIZE_SQL = "INSERT INTO wallet_transaction_summaries (wallet_id, period_start, "
+            + "period_end, deposit_count, deposit_amount, withdraw_count, withdraw_amount) "
+            + "SELECT wallet_id, ?, ?, "
+            + "COUNT(*) FILTER (WHERE operation_type = 'DEPOSIT'), "
+            + "COALESCE(SUM(amount) FILTER (WHERE operation_type = 'DEPOSIT'), 0), "
+            + "COUNT(*) FILTER (WHERE operation_type = 'WITHDRAW'), "
+            + "COALESCE(SUM(amount) FILTER (WHERE operation_type = 'WITHDRAW'), 0) "
+            + "FROM %s GROUP BY wallet_id "
+            + "ON CONFLICT (wallet_id, period_start) DO UPDATE SET period_end = EXCLUDED.period_end, "
+            + "deposit_count = EXCLUDED.deposit_count, deposit_amount = EXCLUDED.deposit_amount, "
+            + "withdraw_count = EXCLUDED.withdraw_count, withdraw_amount = EXCLUDED.withdraw_amount";
+    private static final String DELETE_OPERATION_KEYS_SQL = "DELETE FROM operation_keys WHERE created_at < ?";
+    private static final String DETACH_SQL = "ALTER TABLE transactions DETACH PARTITION %s";
+    private static final String DROP_SQL = "DROP TABLE %s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int premadeMonths;
+    private final Duration retention;
+    private final boolean dropExpired;
+
+    public TransactionPartitions(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${wallet.transactions.partitions.premade-months:3}") int premadeMonths,
+                                 @Value("${wallet.transactions.retention.period:365d}") Duration retention,
+                                 @Value("${wallet.transactions.retention.drop-expired:true}") boolean dropExpired) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.premadeMonths = premadeMonths;
+        this.retention = retention;
+        this.dropExpired = dropExpired;
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.transactions.partitions.maintenance-interval:PT1H}")
+    public void maintain() {
+        createUpcoming();
+        LocalDateTime cutoff = LocalDateTime.now(ZoneOffset.UTC).minus(retention);
+        jdbcTemplate.queryForList(PARTITIONS_SQL, String.class).stream()
+                .filter(partition -> monthOf(partition)
+                        .filter(month -> !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff))
+                        .isPresent())
+                .forEach(this::retire);
+    }
+
+    private void createUpcoming() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!locked()) {
+                return;
+            }
+            Integer created = jdbcTemplate.queryForObject(ENSURE_SQL, Integer.class, premadeMonths);
+            if (created != null && created > 0) {
+                log.info("Created {} transactions partitions", created);
+            }
+        });
+    }
+
+    /**
+     * Folds the partition into per-wallet summaries, forgets its operation keys and detaches it.
+     */
+    private void retire(String partition) {
+        YearMonth month = monthOf(partition).orElseThrow();
+        Timestamp periodStart = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp periodEnd = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!locked()) {
+                return;
+            }
+            int wallets = jdbcTemplate.update(SUMMARIZE_SQL.formatted(partition), periodStart, periodEnd);
+            jdbcTemplate.update(DELETE_OPERATION_KEYS_SQL, periodEnd);
+            jdbcTemplate.execute(DETACH_SQL.formatted(partition));
+            if (dropExpired) {
+                jdbcTemplate.execute(DROP_SQL.formatted(partition));
+            }
+            log.info("Retired transactions partition {}: {} wallet summaries, {}", partition, wallets,
+                    dropExpired ? "dropped" : "detached");
+        });
+    }
+
+    private boolean locked() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(LOCK_SQL, Boolean.class, MAINTENANCE_LOCK_ID));
+    }
+
+    /**
+     * @return month covered by a {@code transactions_pYYYYMM} partition, empty for any other table name
+     */
+    static Optional<YearMonth> monthOf(String partition) {
+        if (!partition.matches(PARTITION_PREFIX + "\\d{6}")) {
+            return Optional.empty();
+        }
+        return Optional.of(YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_MONTH));
+    }
+}
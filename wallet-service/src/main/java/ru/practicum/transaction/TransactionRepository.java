@@ -1,9 +1,17 @@
 package ru.practicum.transaction;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
-    boolean existsByOperationTrackId(UUID operationTrackId);
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionLedgerOperations {
+    @Query("SELECT COUNT(k) > 0 FROM OperationKey k WHERE k.operationTrackId = :operationTrackId")
+    boolean existsByOperationTrackId(@Param("operationTrackId") UUID operationTrackId);
+
+    @Query("SELECT k.operationTrackId FROM OperationKey k WHERE k.operationTrackId IN :trackIds")
+    List<UUID> findExistingTrackIds(@Param("trackIds") Collection<UUID> trackIds);
 }
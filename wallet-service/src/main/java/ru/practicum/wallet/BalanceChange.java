@@ -0,0 +1,13 @@
+package ru.practicum.wallet;
+
+import lombok.Value;
+
+/**
+ * Wallet state right after a balance update, as returned by the updating statement.
+ */
+@Value
+public class BalanceChange {
+    long balance;
+    long version;
+    String currency;
+}
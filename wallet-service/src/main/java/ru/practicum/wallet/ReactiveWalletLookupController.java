@@ -0,0 +1,35 @@
+package ru.practicum.wallet;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.util.UUID;
+
+/**
+ * Single wallet lookup on R2DBC: the request goes async while the query runs, so neither the Tomcat thread
+ * nor a pooled connection is held in between.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@Slf4j
+@RequiredArgsConstructor
+@Profile("reactive")
+public class ReactiveWalletLookupController {
+
+    private final ReactiveWalletService walletService;
+
+    @GetMapping("/wallets/{walletId}")
+    public Mono<WalletCacheDto> getWallet(
+            @PathVariable UUID walletId) {
+
+        log.info("getWallet: {}", walletId);
+        return walletService.getWalletInfo(walletId);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.wallet;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import ru.practicum.kafka.KafkaWalletEvent;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * R2DBC counterparts of the wallet queries on the lookup and event-apply paths, statements match
+ * {@link WalletBalanceOperations} and the transaction ledger so both modes write the same rows.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveWalletRepository {
+    private static final String TOTAL_BALANCE = "w.balance "
+            + "+ COALESCE((SELECT SUM(s.balance) FROM wallet_stripes s WHERE s.wallet_id = w.id), 0)";
+
+    private static final String FIND_WALLET_SQL = "SELECT " + TOTAL_BALANCE + " AS balance, w.version, w.currency, "
+            + "w.stripe_count FROM wallets w WHERE w.id = $1";
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE wallets SET balance = balance + $1, version = version + 1 "
+                    + "WHERE id = $2 AND balance >= $3 AND stripe_count = 0 "
+                    + "RETURNING balance, version, currency, stripe_count";
+    private static final String INSERT_IF_ABSENT_SQL =
+            "WITH track AS (INSERT INTO operation_keys (operation_track_id, created_at) VALUES ($1, $2) "
+                    + "ON CONFLICT (operation_track_id) DO NOTHING RETURNING operation_track_id) "
+                    + "INSERT INTO transactions (id, wallet_id, operation_type, amount, previous_balance, new_balance, "
+                    + "operation_track_id, created_at) SELECT $3, $4, $5, $6, $7, $8, operation_track_id, $2 FROM track";
+    private static final String OPERATION_EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM operation_keys WHERE operation_track_id = $1)";
+
+    private static final BiFunction<Row, RowMetadata, WalletRow> WALLET_ROW_MAPPER = (row, metadata) ->
+            new WalletRow(new BalanceChange(row.get("balance", Long.class), row.get("version", Long.class),
+                    row.get("currency", String.class)), row.get("stripe_count", Integer.class));
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<WalletCacheDto> findInfo(UUID walletId) {
+        return findWallet(walletId).map(wallet -> WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(wallet.getBalance().getBalance())
+                .currency(wallet.getBalance().getCurrency())
+                .version(wallet.getBalance().getVersion())
+                .build());
+    }
+
+    /**
+     * @return committed state with stripe balances included, empty if the wallet does not exist
+     */
+    public Mono<WalletRow> findWallet(UUID walletId) {
+        return databaseClient.sql(FIND_WALLET_SQL)
+                .bind(0, walletId)
+                .map(WALLET_ROW_MAPPER)
+                .one();
+    }
+
+    /**
+     * @return the wallet row after the change, empty if the wallet does not exist, is striped or the balance
+     * does not cover it
+     */
+    public Mono<WalletRow> applyDelta(UUID walletId, long delta) {
+        return databaseClient.sql(APPLY_DELTA_SQL)
+                .bind(0, delta)
+                .bind(1, walletId)
+                .bind(2, Math.max(0L, -delta))
+                .map(WALLET_ROW_MAPPER)
+                .one();
+    }
+
+    /**
+     * {@code created_at} is written in UTC, as the JPA path does with {@code hibernate.jdbc.time_zone}, so the
+     * row lands in the same monthly partition whatever the JVM zone.
+     *
+     * @return {@code false} if the operation track id is already recorded
+     */
+    public Mono<Boolean> insertTransactionIfAbsent(KafkaWalletEvent event, long previousBalance, long newBalance) {
+        return databaseClient.sql(INSERT_IF_ABSENT_SQL)
+                .bind(0, event.getOperationTrackId())
+                .bind(1, LocalDateTime.now(ZoneOffset.UTC))
+                .bind(2, UUID.randomUUID())
+                .bind(3, event.getWalletId())
+                .bind(4, event.getOperationType().name())
+                .bind(5, event.getAmount())
+                .bind(6, previousBalance)
+                .bind(7, newBalance)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows == 1);
+    }
+
+    public Mono<Boolean> operationExists(UUID operationTrackId) {
+        return databaseClient.sql(OPERATION_EXISTS_SQL)
+                .bind(0, operationTrackId)
+                .map((row, metadata) -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    @lombok.Value
+    public static class WalletRow {
+        BalanceChange balance;
+        int stripeCount;
+
+        public boolean isStriped() {
+            return stripeCount > 0;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.practicum.wallet;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.LowBalanceException;
+import ru.practicum.NotFoundException;
+import ru.practicum.enums.OperationStatus;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
+import ru.practicum.kafka.KafkaWalletEvent;
+import ru.practicum.redis.WalletCacheDto;
+
+import java.util.UUID;
+
+/**
+ * {@link WalletService#getWalletInfo} and {@link WalletService#updateBalanceFromEvent} on R2DBC for the
+ * {@code reactive} profile: no thread or connection is held while a statement is in flight.
+ * Events of striped wallets go to the blocking service: deposits credit a stripe, withdrawals may need a sweep,
+ * and their ledger rows carry no running balance.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Profile("reactive")
+public class ReactiveWalletService {
+
+    private final ReactiveWalletRepository walletRepository;
+    private final TransactionalOperator reactiveTransactionalOperator;
+    private final WalletService walletService;
+
+    public Mono<WalletCacheDto> getWalletInfo(UUID walletId) {
+        return walletRepository.findInfo(walletId)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Wallet with id: " + walletId + " not found")));
+    }
+
+    /**
+     * Applies one event in its own transaction.
+     *
+     * @return outcome to publish once the transaction is committed, empty for an already recorded operation
+     * or when the blocking service applied and published it
+     */
+    public Mono<KafkaWalletBalanceEvent> applyEvent(KafkaWalletEvent event) {
+        long delta = event.getOperationType() == WalletOperationType.DEPOSIT
+                ? event.getAmount()
+                : -event.getAmount();
+        return walletRepository.applyDelta(event.getWalletId(), delta)
+                .flatMap(applied -> record(event, applied, delta))
+                .switchIfEmpty(Mono.defer(() -> rejection(event)))
+                .as(reactiveTransactionalOperator::transactional)
+                .onErrorResume(DuplicateOperationException.class, e -> {
+                    log.info("Duplicated operation track id {} already exists", event.getOperationTrackId());
+                    return Mono.empty();
+                })
+                .onErrorResume(StripesNeededException.class, e -> applyBlocking(event));
+    }
+
+    private Mono<KafkaWalletBalanceEvent> record(KafkaWalletEvent event,
+                                                 ReactiveWalletRepository.WalletRow applied,
+                                                 long delta) {
+        long newBalance = applied.getBalance().getBalance();
+        return walletRepository.insertTransactionIfAbsent(event, newBalance - delta, newBalance)
+                .flatMap(inserted -> inserted
+                        ? Mono.just(KafkaWalletBalanceEvent.builder()
+                        .walletId(event.getWalletId())
+                        .balance(newBalance)
+                        .currency(applied.getBalance().getCurrency())
+                        .version(applied.getBalance().getVersion())
+                        .operationTrackId(event.getOperationTrackId())
+                        .status(OperationStatus.SUCCESS)
+                        .build())
+                        : Mono.error(new DuplicateOperationException()));
+    }
+
+    private Mono<KafkaWalletBalanceEvent> rejection(KafkaWalletEvent event) {
+        return walletRepository.operationExists(event.getOperationTrackId())
+                .flatMap(exists -> exists
+                        ? Mono.error(new DuplicateOperationException())
+                        : walletRepository.findWallet(event.getWalletId())
+                        .map(wallet -> wallet.isStriped()
+                                ? Mono.<KafkaWalletBalanceEvent>error(new StripesNeededException())
+                                : Mono.just(denied(event, wallet.getBalance())))
+                        .defaultIfEmpty(Mono.just(denied(event, null)))
+                        .flatMap(outcome -> outcome));
+    }
+
+    /**
+     * Runs after the reactive transaction is rolled back, the blocking service opens its own.
+     */
+    private Mono<KafkaWalletBalanceEvent> applyBlocking(KafkaWalletEvent event) {
+        return Mono.<KafkaWalletBalanceEvent>fromCallable(() -> {
+                    try {
+                        walletService.updateBalanceFromEvent(event);
+                        return null;
+                    } catch (LowBalanceException | NotFoundException e) {
+                        return walletService.rejectionOf(event);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static KafkaWalletBalanceEvent denied(KafkaWalletEvent event, BalanceChange balance) {
+        KafkaWalletBalanceEvent.KafkaWalletBalanceEventBuilder rejection = KafkaWalletBalanceEvent.builder()
+                .walletId(event.getWalletId())
+                .operationTrackId(event.getOperationTrackId())
+                .status(OperationStatus.DENIED);
+        if (balance != null) {
+            rejection.balance(balance.getBalance())
+                    .currency(balance.getCurrency())
+                    .version(balance.getVersion());
+        }
+        return rejection.build();
+    }
+
+    /**
+     * Rolls the reactive transaction back when the operation is already recorded.
+     */
+    private static class DuplicateOperationException extends RuntimeException {
+        DuplicateOperationException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Rolls the reactive transaction back when the wallet is striped.
+     */
+    private static class StripesNeededException extends RuntimeException {
+        StripesNeededException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
-import org.springframework.data.annotation.Version;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -30,6 +29,15 @@ public class Wallet {
     @Version
     private Long version;
 
+    /**
+     * Number of {@code wallet_stripes} rows credits are spread over, {@code 0} for a regular wallet.
+     */
+    private Integer stripeCount;
+
     private Instant createdAt;
     private Instant updatedAt;
+
+    public boolean isStriped() {
+        return stripeCount != null && stripeCount > 0;
+    }
 }
@@ -0,0 +1,132 @@
+package ru.practicum.wallet;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.BadRequestException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Periodic per-wallet balance checkpoints and the point-in-time balance read on top of them.
+ * A checkpoint is written for every wallet with ledger activity since the previous run, so answering "as of"
+ * reads one checkpoint and the ledger rows of at most one checkpoint interval through the history index.
+ */
+@Component
+@Slf4j
+public class WalletBalanceCheckpoints {
+    private static final long CHECKPOINT_LOCK_ID = 0x636B7074L;
+    private static final Timestamp NO_CHECKPOINT = Timestamp.valueOf("1970-01-01 00:00:00");
+
+    private static final String SIGNED_AMOUNT = "CASE WHEN operation_type = 'DEPOSIT' THEN amount ELSE -amount END";
+
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+    private static final String LAST_CHECKPOINT_SQL = "SELECT MAX(checkpoint_at) FROM wallet_balance_checkpoints";
+    /**
+     * One statement, so the wallet rows, stripes and ledger are read from the same snapshot: the current
+     * balance minus everything recorded after the checkpoint time is the balance at that time.
+     */
+    private static final String WRITE_CHECKPOINTS_SQL = "INSERT INTO wallet_balance_checkpoints "
+            + "(wallet_id, checkpoint_at, balance) "
+            + "SELECT w.id, ?, w.balance "
+            + "+ COALESCE((SELECT SUM(s.balance) FROM wallet_stripes s WHERE s.wallet_id = w.id), 0) "
+            + "- COALESCE((SELECT SUM(" + SIGNED_AMOUNT + ") FROM transactions t "
+            + "WHERE t.wallet_id = w.id AND t.created_at > ?), 0) "
+            + "FROM wallets w "
+            + "WHERE w.id IN (SELECT wallet_id FROM transactions WHERE created_at > ? AND created_at <= ?)";
+
+    private static final String CHECKPOINT_BEFORE_SQL = "SELECT checkpoint_at, balance "
+            + "FROM wallet_balance_checkpoints WHERE wallet_id = ? AND checkpoint_at <= ? "
+            + "ORDER BY checkpoint_at DESC LIMIT 1";
+    private static final String CHECKPOINT_AFTER_SQL = "SELECT checkpoint_at, balance "
+            + "FROM wallet_balance_checkpoints WHERE wallet_id = ? AND checkpoint_at > ? "
+            + "ORDER BY checkpoint_at LIMIT 1";
+    private static final String LEDGER_DELTA_SQL = "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) "
+            + "FROM transactions WHERE wallet_id = ? AND created_at > ? AND created_at <= ?";
+    private static final String LEDGER_DELTA_SINCE_SQL = "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) "
+            + "FROM transactions WHERE wallet_id = ? AND created_at > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lag;
+    private final Duration retention;
+
+    public WalletBalanceCheckpoints(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${wallet.checkpoints.lag:1m}") Duration lag,
+                                    @Value("${wallet.transactions.retention.period:365d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lag = lag;
+        this.retention = retention;
+    }
+
+    /**
+     * Checkpoints are taken {@code lag} behind now, so ledger rows stamped before the checkpoint time
+     * have committed by the time it is written.
+     */
+    @Scheduled(fixedDelayString = "${wallet.checkpoints.interval:PT1H}")
+    public void writeCheckpoints() {
+        Timestamp checkpointAt = Timestamp.from(Instant.now().minus(lag));
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(LOCK_SQL, Boolean.class, CHECKPOINT_LOCK_ID))) {
+                return;
+            }
+            Timestamp previous = Optional.ofNullable(jdbcTemplate.queryForObject(LAST_CHECKPOINT_SQL, Timestamp.class))
+                    .orElse(NO_CHECKPOINT);
+            if (!checkpointAt.after(previous)) {
+                return;
+            }
+            int written = jdbcTemplate.update(WRITE_CHECKPOINTS_SQL, checkpointAt, checkpointAt, previous, checkpointAt);
+            log.info("Wrote {} wallet balance checkpoints at {}", written, checkpointAt);
+        });
+    }
+
+    /**
+     * Balance as of {@code asOf} derived from the nearest checkpoint: the latest one at or before {@code asOf}
+     * rolled forward, otherwise the earliest later one rolled back, otherwise {@code currentBalance} rolled back.
+     * Must run in a transaction that reads {@code currentBalance} from the same snapshot.
+     *
+     * @throws BadRequestException if {@code asOf} is past the ledger retention, those rows may already be summarized
+     */
+    public long balanceAsOf(UUID walletId, Instant asOf, long currentBalance) {
+        if (asOf.isBefore(Instant.now().minus(retention))) {
+            throw new BadRequestException("Balance history is kept for " + retention.toDays() + " days");
+        }
+        Timestamp at = Timestamp.from(asOf);
+        Optional<Checkpoint> before = checkpoint(CHECKPOINT_BEFORE_SQL, walletId, at);
+        if (before.isPresent()) {
+            return before.get().getBalance() + ledgerDelta(walletId, before.get().getAt(), at);
+        }
+        Optional<Checkpoint> after = checkpoint(CHECKPOINT_AFTER_SQL, walletId, at);
+        if (after.isPresent()) {
+            return after.get().getBalance() - ledgerDelta(walletId, at, after.get().getAt());
+        }
+        return currentBalance - jdbcTemplate.queryForObject(LEDGER_DELTA_SINCE_SQL, Long.class, walletId, at);
+    }
+
+    private Optional<Checkpoint> checkpoint(String sql, UUID walletId, Timestamp at) {
+        List<Checkpoint> checkpoints = jdbcTemplate.query(sql,
+                (rs, rowNum) -> new Checkpoint(rs.getTimestamp("checkpoint_at"), rs.getLong("balance")),
+                walletId, at);
+        return checkpoints.isEmpty() ? Optional.empty() : Optional.of(checkpoints.get(0));
+    }
+
+    private long ledgerDelta(UUID walletId, Timestamp from, Timestamp to) {
+        return jdbcTemplate.queryForObject(LEDGER_DELTA_SQL, Long.class, walletId, from, to);
+    }
+
+    @lombok.Value
+    private static class Checkpoint {
+        Timestamp at;
+        long balance;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.wallet;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface WalletBalanceOperations {
+
+    /**
+     * Adds {@code delta} to the balance and bumps the version in one statement, unless the balance would go negative.
+     *
+     * @return the updated state, empty if the wallet does not exist or its balance is insufficient
+     */
+    Optional<BalanceChange> applyDelta(UUID walletId, long delta);
+}
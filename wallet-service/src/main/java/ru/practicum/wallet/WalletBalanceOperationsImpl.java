@@ -0,0 +1,27 @@
+package ru.practicum.wallet;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+class WalletBalanceOperationsImpl implements WalletBalanceOperations {
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE wallets SET balance = balance + ?, version = version + 1 WHERE id = ? AND balance >= ? "
+                    + "RETURNING balance, version, currency";
+
+    private static final RowMapper<BalanceChange> BALANCE_CHANGE_MAPPER = (rs, rowNum) ->
+            new BalanceChange(rs.getLong("balance"), rs.getLong("version"), rs.getString("currency"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<BalanceChange> applyDelta(UUID walletId, long delta) {
+        return jdbcTemplate.query(APPLY_DELTA_SQL, BALANCE_CHANGE_MAPPER, delta, walletId, Math.max(0L, -delta))
+                .stream()
+                .findFirst();
+    }
+}
@@ -0,0 +1,188 @@
+package ru.practicum.wallet;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.enums.OperationStatus;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
+import ru.practicum.kafka.KafkaWalletEvent;
+import ru.practicum.transaction.TransactionRepository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a poll batch of wallet events in one DB transaction: events are netted per wallet in memory
+ * in topic order, then written as one balance UPDATE per wallet and one batched INSERT of transactions.
+ * Outcomes are published per operation after commit, every applied operation advances the wallet version
+ * by one as in {@link WalletService#updateBalanceFromEvent}.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class WalletBatchService {
+    private static final String UPDATE_WALLET_SQL =
+            "UPDATE wallets SET balance = ?, version = ? WHERE id = ? AND version = ?";
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (id, wallet_id, operation_type, amount, previous_balance, new_balance, "
+                    + "operation_track_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_OPERATION_KEY_SQL =
+            "INSERT INTO operation_keys (operation_track_id, created_at) VALUES (?, ?)";
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletStripes walletStripes;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Retryable(value = ObjectOptimisticLockingFailureException.class,
+            maxAttempts = 3,
+            backoff = @Backoff(delay = 100))
+    @Transactional
+    public void applyEvents(List<KafkaWalletEvent> events) {
+        log.info("Applying batch of {} wallet events", events.size());
+        List<KafkaWalletEvent> pending = withoutDuplicates(events);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> walletIds = pending.stream()
+                .map(KafkaWalletEvent::getWalletId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        // Netting already removes per-event row contention, so striped wallets are folded back into their row
+        // and the published balances stay complete
+        walletIds.stream()
+                .filter(walletId -> walletStripes.stripeCount(walletId) > 0)
+                .forEach(walletStripes::sweep);
+        Map<UUID, WalletState> wallets = walletRepository.findAllByIds(walletIds.toArray(UUID[]::new)).stream()
+                .collect(Collectors.toMap(Wallet::getId, WalletState::new, (first, second) -> first,
+                        LinkedHashMap::new));
+
+        Instant now = Instant.now();
+        List<Object[]> transactionRows = new ArrayList<>();
+        List<KafkaWalletBalanceEvent> outcomes = new ArrayList<>(pending.size());
+        for (KafkaWalletEvent event : pending) {
+            WalletState wallet = wallets.get(event.getWalletId());
+            if (wallet == null) {
+                log.info("Operation {} rejected: wallet {} not found", event.getOperationTrackId(), event.getWalletId());
+                outcomes.add(outcome(event, null, OperationStatus.DENIED));
+                continue;
+            }
+
+            long previousBalance = wallet.balance;
+            if (event.getOperationType() == WalletOperationType.WITHDRAW && previousBalance < event.getAmount()) {
+                log.info("Operation {} rejected: not enough balance", event.getOperationTrackId());
+                outcomes.add(outcome(event, wallet, OperationStatus.DENIED));
+                continue;
+            }
+
+            long newBalance = event.getOperationType() == WalletOperationType.DEPOSIT
+                    ? previousBalance + event.getAmount()
+                    : previousBalance - event.getAmount();
+            wallet.balance = newBalance;
+            wallet.version++;
+
+            transactionRows.add(new Object[]{UUID.randomUUID(), wallet.id, event.getOperationType().name(),
+                    event.getAmount(), previousBalance, newBalance, event.getOperationTrackId(), Timestamp.from(now)});
+            outcomes.add(outcome(event, wallet, OperationStatus.SUCCESS));
+        }
+
+        List<Object[]> walletRows = wallets.values().stream()
+                .filter(WalletState::isChanged)
+                .map(wallet -> new Object[]{wallet.balance, wallet.version, wallet.id, wallet.loadedVersion})
+                .toList();
+        updateWallets(walletRows);
+        if (!transactionRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_OPERATION_KEY_SQL, transactionRows.stream()
+                    .map(row -> new Object[]{row[6], row[7]})
+                    .toList());
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, transactionRows);
+        }
+
+        outcomes.forEach(eventPublisher::publishEvent);
+        log.info("Batch applied: {} operations on {} wallets, {} rejected",
+                transactionRows.size(), walletRows.size(), outcomes.size() - transactionRows.size());
+    }
+
+    private void updateWallets(List<Object[]> walletRows) {
+        if (walletRows.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_WALLET_SQL, walletRows);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new ObjectOptimisticLockingFailureException(Wallet.class, walletRows.get(i)[2]);
+            }
+        }
+    }
+
+    /**
+     * Drops events whose track id is already stored or repeated earlier in the batch.
+     */
+    private List<KafkaWalletEvent> withoutDuplicates(List<KafkaWalletEvent> events) {
+        Set<UUID> seen = new HashSet<>(transactionRepository.findExistingTrackIds(events.stream()
+                .map(KafkaWalletEvent::getOperationTrackId)
+                .toList()));
+        List<KafkaWalletEvent> pending = new ArrayList<>(events.size());
+        for (KafkaWalletEvent event : events) {
+            if (seen.add(event.getOperationTrackId())) {
+                pending.add(event);
+            } else {
+                log.info("Duplicated operation track id {} already exists", event.getOperationTrackId());
+            }
+        }
+        return pending;
+    }
+
+    private KafkaWalletBalanceEvent outcome(KafkaWalletEvent event, WalletState wallet, OperationStatus status) {
+        KafkaWalletBalanceEvent.KafkaWalletBalanceEventBuilder outcome = KafkaWalletBalanceEvent.builder()
+                .walletId(event.getWalletId())
+                .operationTrackId(event.getOperationTrackId())
+                .status(status);
+        if (wallet != null) {
+            outcome.balance(wallet.balance)
+                    .currency(wallet.currency)
+                    .version(wallet.version);
+        }
+        return outcome.build();
+    }
+
+    /**
+     * In-memory copy of a wallet, the loaded entity itself is left untouched so Hibernate does not flush it.
+     */
+    private static final class WalletState {
+        final UUID id;
+        final String currency;
+        final long loadedVersion;
+        long balance;
+        long version;
+
+        WalletState(Wallet wallet) {
+            this.id = wallet.getId();
+            this.currency = wallet.getCurrency();
+            this.loadedVersion = wallet.getVersion();
+            this.balance = wallet.getBalance();
+            this.version = wallet.getVersion();
+        }
+
+        boolean isChanged() {
+            return version != loadedVersion;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package ru.practicum.wallet;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.practicum.redis.WalletCacheDto;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -17,15 +24,34 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class WalletController {
 
+    private static final int MAX_STRIPES = 256;
+
     private final WalletService walletService;
 
-    @GetMapping("/wallets/{walletId}")
-    public ResponseEntity<WalletCacheDto> getWallet(
-            @PathVariable UUID walletId) {
+    @GetMapping("/wallets")
+    public ResponseEntity<List<WalletCacheDto>> getWallets(
+            @RequestParam List<UUID> ids) {
+
+        log.info("getWallets: {} ids", ids.size());
+        return ResponseEntity.ok().body(walletService.getWalletsInfo(ids));
+    }
+
+    @GetMapping("/wallets/{walletId}/balance")
+    public ResponseEntity<WalletBalanceDto> getBalanceAsOf(
+            @PathVariable UUID walletId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf) {
 
-        log.info("getWallet: {}", walletId);
-        return ResponseEntity.ok().body(walletService.getWalletInfo(walletId));
+        log.info("getBalanceAsOf: {}, as of {}", walletId, asOf);
+        return ResponseEntity.ok().body(walletService.getBalanceAsOf(walletId, asOf));
     }
 
+    @PutMapping("/wallets/{walletId}/stripes")
+    public ResponseEntity<WalletCacheDto> setStripes(
+            @PathVariable UUID walletId,
+            @RequestParam @Min(0) @Max(MAX_STRIPES) int count) {
+
+        log.info("setStripes: {}, count {}", walletId, count);
+        return ResponseEntity.ok().body(walletService.setStripeCount(walletId, count));
+    }
 
 }
@@ -10,5 +10,7 @@ public interface WalletMapper {
     @Mapping(source = "id", target = "walletId")
     @Mapping(source = "balance", target = "balance")
     @Mapping(source = "currency", target = "currency")
+    @Mapping(source = "version", target = "version")
+    @Mapping(target = "cachedAt", ignore = true)
     WalletCacheDto walletToCacheDto(Wallet wallet);
 }
@@ -1,10 +1,19 @@
 package ru.practicum.wallet;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.UUID;
 
-public interface WalletRepository extends JpaRepository<Wallet, UUID> {
+public interface WalletRepository extends JpaRepository<Wallet, UUID>, WalletBalanceOperations {
 
+    /**
+     * Single round trip for any number of ids: binds one array parameter instead of
+     * expanding an {@code IN (...)} list, so the statement text stays the same for every batch size.
+     */
+    @Query(value = "SELECT * FROM wallets WHERE id = ANY(:ids)", nativeQuery = true)
+    List<Wallet> findAllByIds(@Param("ids") UUID[] ids);
 
 }
@@ -3,20 +3,29 @@ package ru.practicum.wallet;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import ru.practicum.LowBalanceException;
 import ru.practicum.NotFoundException;
+import ru.practicum.enums.OperationStatus;
 import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
 import ru.practicum.kafka.KafkaWalletEvent;
 import ru.practicum.redis.WalletCacheDto;
 import ru.practicum.transaction.Transaction;
 import ru.practicum.transaction.TransactionRepository;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -28,7 +37,11 @@ public class WalletService {
     private final WalletRepository walletRepository;
     private final TransactionRepository transactionRepository;
 
+    private final WalletStripes walletStripes;
+    private final WalletBalanceCheckpoints balanceCheckpoints;
+
     private final WalletMapper walletMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public WalletCacheDto getWalletInfo(UUID walletId) {
@@ -37,41 +50,143 @@ public class WalletService {
                 () -> new NotFoundException("Wallet with id: " + walletId + " not found")
         );
         log.info("Found wallet {}", wallet);
-        return walletMapper.walletToCacheDto(wallet);
+        WalletCacheDto walletInfo = walletMapper.walletToCacheDto(wallet);
+        return wallet.isStriped()
+                ? walletInfo.toBuilder().balance(walletInfo.getBalance() + walletStripes.balance(walletId)).build()
+                : walletInfo;
+    }
+
+    @Transactional(readOnly = true)
+    public List<WalletCacheDto> getWalletsInfo(Collection<UUID> walletIds) {
+        log.info("Getting wallet info for {} wallets", walletIds.size());
+        List<Wallet> wallets = walletRepository.findAllByIds(walletIds.toArray(UUID[]::new));
+        Map<UUID, Long> stripeBalances = walletStripes.balances(wallets.stream()
+                .filter(Wallet::isStriped)
+                .map(Wallet::getId)
+                .toList());
+        return wallets.stream()
+                .map(wallet -> {
+                    WalletCacheDto walletInfo = walletMapper.walletToCacheDto(wallet);
+                    Long stripeBalance = stripeBalances.get(wallet.getId());
+                    return stripeBalance == null
+                            ? walletInfo
+                            : walletInfo.toBuilder().balance(walletInfo.getBalance() + stripeBalance).build();
+                })
+                .toList();
     }
 
+    /**
+     * Reads the wallet and the checkpoint slice from one snapshot, so a concurrent operation is either
+     * counted in both or in neither.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public WalletBalanceDto getBalanceAsOf(UUID walletId, Instant asOf) {
+        Wallet wallet = walletRepository.findById(walletId)
+                .orElseThrow(() -> new NotFoundException("Wallet with id: " + walletId + " not found"));
+        long currentBalance = wallet.isStriped()
+                ? wallet.getBalance() + walletStripes.balance(walletId)
+                : wallet.getBalance();
+        long balance = balanceCheckpoints.balanceAsOf(walletId, asOf, currentBalance);
+        log.info("Balance of wallet {} as of {}: {}", walletId, asOf, balance);
+        return WalletBalanceDto.builder()
+                .walletId(walletId)
+                .balance(balance)
+                .currency(wallet.getCurrency())
+                .build();
+    }
+
+    /**
+     * The balance is checked and changed by one conditional UPDATE, so concurrent events for the same wallet
+     * do not conflict; the retry only covers writers that still go through the entity version.
+     * Idempotency rests on the unique operation track id: if the ledger row already exists the transaction
+     * is rolled back, so a redelivered event costs no separate existence query on the hot path.
+     */
     @Retryable(value = ObjectOptimisticLockingFailureException.class,
             maxAttempts = 3,
             backoff = @Backoff(delay = 100))
     public void updateBalanceFromEvent(KafkaWalletEvent event) {
         log.info("Event in processing {}: {}", event);
 
-        if (transactionRepository.existsByOperationTrackId(event.getOperationTrackId())) {
-            log.info("Duplicated operation track id {} already exists", event.getOperationTrackId());
-            return;
+        boolean striped = walletStripes.stripeCount(event.getWalletId()) > 0;
+        if (striped && event.getOperationType() == WalletOperationType.DEPOSIT) {
+            if (walletStripes.credit(event.getWalletId(), event.getAmount()).isPresent()) {
+                applyStripedDeposit(event);
+                return;
+            }
         }
 
-        Wallet wallet = walletRepository.findById(event.getWalletId()).orElseThrow(
-                () -> new NotFoundException("Wallet with id: " + event.getWalletId() + " not found")
-        );
+        long delta = event.getOperationType() == WalletOperationType.DEPOSIT
+                ? event.getAmount()
+                : -event.getAmount();
+        Optional<BalanceChange> applied = walletRepository.applyDelta(event.getWalletId(), delta);
+        if (applied.isEmpty() && striped && walletStripes.sweep(event.getWalletId())) {
+            applied = walletRepository.applyDelta(event.getWalletId(), delta);
+        }
+        if (applied.isEmpty()) {
+            if (transactionRepository.existsByOperationTrackId(event.getOperationTrackId())) {
+                log.info("Duplicated operation track id {} already exists", event.getOperationTrackId());
+                return;
+            }
+            throw walletRepository.existsById(event.getWalletId())
+                    ? new LowBalanceException("Not enough balance for processing")
+                    : new NotFoundException("Wallet with id: " + event.getWalletId() + " not found");
+        }
+        BalanceChange change = applied.get();
 
-        if (event.getOperationType() == WalletOperationType.WITHDRAW &&
-                wallet.getBalance() < event.getAmount()) {
-            throw new LowBalanceException("Not enough balance for processing");
+        Long newBalance = change.getBalance();
+        if (!(striped
+                ? recordTransaction(event, null, null)
+                : recordTransaction(event, newBalance - delta, newBalance))) {
+            return;
         }
+        log.info("Balance updated. Wallet: {}, New Balance: {}", event.getWalletId(), newBalance);
 
-        Long previousBalance = wallet.getBalance();
+        eventPublisher.publishEvent(KafkaWalletBalanceEvent.builder()
+                .walletId(event.getWalletId())
+                .balance(striped ? newBalance + walletStripes.balance(event.getWalletId()) : newBalance)
+                .currency(change.getCurrency())
+                .version(change.getVersion())
+                .operationTrackId(event.getOperationTrackId())
+                .status(OperationStatus.SUCCESS)
+                .build());
+    }
 
-        Long newBalance = event.getOperationType() == WalletOperationType.DEPOSIT
-                ? previousBalance + event.getAmount()
-                : previousBalance - event.getAmount();
+    /**
+     * Turns striping of a wallet on ({@code count > 0}) or off ({@code count == 0}).
+     */
+    public WalletCacheDto setStripeCount(UUID walletId, int count) {
+        if (!walletStripes.configure(walletId, count)) {
+            throw new NotFoundException("Wallet with id: " + walletId + " not found");
+        }
+        return getWalletInfo(walletId);
+    }
+
+    /**
+     * A stripe credit does not touch the wallet row, so there is no new wallet version to publish: the outcome
+     * carries no balance and consumers drop their cached copy. Neither is there a wallet total to put in the ledger.
+     */
+    private void applyStripedDeposit(KafkaWalletEvent event) {
+        if (!recordTransaction(event, null, null)) {
+            return;
+        }
+        log.info("Striped deposit applied. Wallet: {}, amount: {}", event.getWalletId(), event.getAmount());
 
-        wallet.setBalance(newBalance);
-        walletRepository.save(wallet);
+        eventPublisher.publishEvent(KafkaWalletBalanceEvent.builder()
+                .walletId(event.getWalletId())
+                .operationTrackId(event.getOperationTrackId())
+                .status(OperationStatus.SUCCESS)
+                .build());
+    }
 
+    /**
+     * @param previousBalance wallet balance before the operation, {@code null} for striped wallets whose total
+     *                        is spread over rows this operation did not read
+     * @return {@code false} if the operation was already recorded, the transaction is then marked for rollback
+     */
+    private boolean recordTransaction(KafkaWalletEvent event, Long previousBalance, Long newBalance) {
         Transaction newTransaction = Transaction.builder()
                 .id(UUID.randomUUID())
-                .wallet(wallet)
+                .wallet(walletRepository.getReferenceById(event.getWalletId()))
                 .walletOperationType(event.getOperationType())
                 .amount(event.getAmount())
                 .previousBalance(previousBalance)
@@ -80,9 +195,30 @@ public class WalletService {
                 .createdAt(Instant.now())
                 .build();
 
-        transactionRepository.save(newTransaction);
+        if (!transactionRepository.insertIfAbsent(newTransaction)) {
+            log.info("Duplicated operation track id {} already exists", event.getOperationTrackId());
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
         log.info("Transaction successfully saved with id: {}", newTransaction.getId());
-        log.info("Balance updated. Wallet: {}, New Balance: {}", event.getWalletId(), newBalance);
+        return true;
+    }
+
+    /**
+     * Outcome of an operation rejected by business rules, carrying the current wallet state if the wallet exists.
+     */
+    @Transactional(readOnly = true)
+    public KafkaWalletBalanceEvent rejectionOf(KafkaWalletEvent event) {
+        KafkaWalletBalanceEvent.KafkaWalletBalanceEventBuilder rejection = KafkaWalletBalanceEvent.builder()
+                .walletId(event.getWalletId())
+                .operationTrackId(event.getOperationTrackId())
+                .status(OperationStatus.DENIED);
+
+        walletRepository.findById(event.getWalletId()).ifPresent(wallet -> rejection
+                .balance(wallet.isStriped() ? wallet.getBalance() + walletStripes.balance(wallet.getId()) : wallet.getBalance())
+                .currency(wallet.getCurrency())
+                .version(wallet.getVersion()));
+        return rejection.build();
     }
 
 
@@ -0,0 +1,140 @@
+package ru.practicum.wallet;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sub-balance rows of striped wallets. Credits to a hot wallet land on a random stripe instead of the
+ * {@code wallets} row, so concurrent deposits lock different rows; debits still go through the wallet row
+ * and sweep the stripes into it when it runs short. The balance of a striped wallet is its row plus its stripes.
+ */
+@Component
+@Slf4j
+public class WalletStripes {
+    private static final String STRIPE_COUNT_SQL = "SELECT stripe_count FROM wallets WHERE id = ?";
+    private static final String CREDIT_SQL =
+            "UPDATE wallet_stripes SET balance = balance + ? WHERE wallet_id = ? AND stripe = ? RETURNING balance";
+    private static final String SWEEP_SQL =
+            "WITH swept AS (UPDATE wallet_stripes SET balance = 0 WHERE wallet_id = ? AND balance > 0 RETURNING balance) "
+                    + "UPDATE wallets SET balance = balance + (SELECT SUM(balance) FROM swept), version = version + 1 "
+                    + "WHERE id = ? AND EXISTS (SELECT 1 FROM swept) RETURNING balance";
+    private static final String BALANCE_SQL =
+            "SELECT COALESCE(SUM(balance), 0) FROM wallet_stripes WHERE wallet_id = ?";
+    private static final String BALANCES_SQL =
+            "SELECT wallet_id, SUM(balance) AS balance FROM wallet_stripes WHERE wallet_id = ANY(?) GROUP BY wallet_id";
+    private static final String SET_STRIPE_COUNT_SQL = "UPDATE wallets SET stripe_count = ? WHERE id = ?";
+    /**
+     * Deletes the stripes and folds what they held into the wallet row in one statement, so a credit that commits
+     * to any stripe before the delete is moved with it; later credits find no stripe and go to the row.
+     */
+    private static final String DELETE_STRIPES_SQL =
+            "WITH gone AS (DELETE FROM wallet_stripes WHERE wallet_id = ? RETURNING balance) "
+                    + "UPDATE wallets SET balance = balance + COALESCE((SELECT SUM(balance) FROM gone), 0), "
+                    + "version = version + 1 WHERE id = ?";
+    private static final String INSERT_STRIPE_SQL = "INSERT INTO wallet_stripes (wallet_id, stripe, balance) VALUES (?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadingCache<UUID, Integer> stripeCounts;
+
+    public WalletStripes(JdbcTemplate jdbcTemplate,
+                         @Value("${wallet.stripes.count-cache-ttl:1m}") Duration countCacheTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stripeCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(countCacheTtl)
+                .build(this::loadStripeCount);
+    }
+
+    /**
+     * Cached per wallet, a stale count only sends a credit to the wallet row instead of a stripe.
+     *
+     * @return number of stripes, {@code 0} if the wallet is not striped or does not exist
+     */
+    public int stripeCount(UUID walletId) {
+        return stripeCounts.get(walletId);
+    }
+
+    /**
+     * @return new balance of the credited stripe, empty if the stripe no longer exists
+     */
+    public Optional<Long> credit(UUID walletId, long amount) {
+        int stripeCount = stripeCount(walletId);
+        if (stripeCount == 0) {
+            return Optional.empty();
+        }
+        int stripe = ThreadLocalRandom.current().nextInt(stripeCount);
+        return jdbcTemplate.queryForList(CREDIT_SQL, Long.class, amount, walletId, stripe).stream().findFirst();
+    }
+
+    /**
+     * Moves every stripe balance into the wallet row, bumping the wallet version.
+     *
+     * @return {@code true} if anything was moved
+     */
+    public boolean sweep(UUID walletId) {
+        boolean swept = !jdbcTemplate.queryForList(SWEEP_SQL, Long.class, walletId, walletId).isEmpty();
+        if (swept) {
+            log.info("Swept stripes of wallet {} into its balance", walletId);
+        }
+        return swept;
+    }
+
+    public long balance(UUID walletId) {
+        return jdbcTemplate.queryForObject(BALANCE_SQL, Long.class, walletId);
+    }
+
+    public Map<UUID, Long> balances(Collection<UUID> walletIds) {
+        Map<UUID, Long> balances = new HashMap<>();
+        if (walletIds.isEmpty()) {
+            return balances;
+        }
+        jdbcTemplate.query(BALANCES_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", walletIds.toArray())),
+                rs -> {
+                    balances.put(rs.getObject("wallet_id", UUID.class), rs.getLong("balance"));
+                });
+        return balances;
+    }
+
+    /**
+     * Re-stripes a wallet: existing stripes are deleted with their balances moved into the wallet row and
+     * {@code count} empty ones created, {@code 0} turns striping off. Must run inside a transaction.
+     *
+     * @return {@code false} if the wallet does not exist
+     */
+    public boolean configure(UUID walletId, int count) {
+        if (jdbcTemplate.update(SET_STRIPE_COUNT_SQL, count, walletId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DELETE_STRIPES_SQL, walletId, walletId);
+        List<Object[]> stripes = new ArrayList<>(count);
+        for (int stripe = 0; stripe < count; stripe++) {
+            stripes.add(new Object[]{walletId, stripe});
+        }
+        if (!stripes.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_STRIPE_SQL, stripes);
+        }
+        stripeCounts.invalidate(walletId);
+        log.info("Wallet {} now has {} stripes", walletId, count);
+        return true;
+    }
+
+    private int loadStripeCount(UUID walletId) {
+        List<Integer> counts = jdbcTemplate.queryForList(STRIPE_COUNT_SQL, Integer.class, walletId);
+        return counts.isEmpty() || counts.get(0) == null ? 0 : counts.get(0);
+    }
+}
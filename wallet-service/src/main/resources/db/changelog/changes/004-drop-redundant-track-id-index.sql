@@ -0,0 +1,2 @@
+-- operation_track_id is already indexed by its UNIQUE constraint, the second index only slows down inserts.
+DROP INDEX IF EXISTS idx_transactions_operation_track_id;
@@ -0,0 +1,9 @@
+-- Striped wallets spread credits over sub-balance rows; the wallet balance is wallets.balance plus its stripes.
+ALTER TABLE wallets ADD COLUMN stripe_count INT NOT NULL DEFAULT 0 CHECK (stripe_count >= 0);
+
+CREATE TABLE IF NOT EXISTS wallet_stripes (
+                                wallet_id UUID NOT NULL REFERENCES wallets(id) ON DELETE CASCADE,
+                                stripe INT NOT NULL,
+                                balance BIGINT NOT NULL DEFAULT 0 CHECK (balance >= 0),
+                                PRIMARY KEY (wallet_id, stripe)
+);
@@ -0,0 +1,73 @@
+-- transactions becomes range-partitioned by created_at, one partition per month.
+-- A unique key on a partitioned table must contain the partition key, so operation_track_id
+-- uniqueness moves to operation_keys, which the ledger insert writes in the same statement.
+CREATE TABLE IF NOT EXISTS operation_keys (
+                                operation_track_id UUID PRIMARY KEY,
+                                created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_operation_keys_created_at ON operation_keys(created_at);
+
+-- Per-wallet totals of the months whose partitions were dropped by the retention job.
+CREATE TABLE IF NOT EXISTS wallet_transaction_summaries (
+                                wallet_id UUID NOT NULL REFERENCES wallets(id) ON DELETE CASCADE,
+                                period_start TIMESTAMP NOT NULL,
+                                period_end TIMESTAMP NOT NULL,
+                                deposit_count BIGINT NOT NULL DEFAULT 0,
+                                deposit_amount BIGINT NOT NULL DEFAULT 0,
+                                withdraw_count BIGINT NOT NULL DEFAULT 0,
+                                withdraw_amount BIGINT NOT NULL DEFAULT 0,
+                                PRIMARY KEY (wallet_id, period_start)
+);
+
+ALTER TABLE transactions RENAME TO transactions_legacy;
+
+CREATE TABLE transactions (
+                              id UUID NOT NULL,
+                              wallet_id UUID NOT NULL REFERENCES wallets(id) ON DELETE CASCADE,
+                              operation_type VARCHAR(10) NOT NULL CHECK (operation_type IN ('DEPOSIT', 'WITHDRAW')),
+                              amount BIGINT NOT NULL CHECK (amount > 0),
+                              previous_balance BIGINT NOT NULL,
+                              new_balance BIGINT NOT NULL,
+                              operation_track_id UUID NOT NULL,
+                              created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                              PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_transactions_wallet_id_created_at ON transactions(wallet_id, created_at DESC);
+
+-- Creates the missing monthly partitions transactions_pYYYYMM covering [from_ts, to_ts).
+CREATE OR REPLACE FUNCTION ensure_transactions_partitions(from_ts TIMESTAMP, to_ts TIMESTAMP)
+    RETURNS INT AS $$
+DECLARE
+    month_start TIMESTAMP := date_trunc('month', from_ts);
+    partition_name TEXT;
+    created INT := 0;
+BEGIN
+    WHILE month_start < to_ts LOOP
+        partition_name := 'transactions_p' || to_char(month_start, 'YYYYMM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month_start, month_start + INTERVAL '1 month');
+            created := created + 1;
+        END IF;
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT ensure_transactions_partitions(
+               COALESCE((SELECT MIN(created_at) FROM transactions_legacy), LOCALTIMESTAMP - INTERVAL '1 month'),
+               LOCALTIMESTAMP + INTERVAL '3 months');
+
+INSERT INTO transactions (id, wallet_id, operation_type, amount, previous_balance, new_balance,
+                          operation_track_id, created_at)
+SELECT id, wallet_id, operation_type, amount, previous_balance, new_balance, operation_track_id, created_at
+FROM transactions_legacy;
+
+INSERT INTO operation_keys (operation_track_id, created_at)
+SELECT operation_track_id, created_at
+FROM transactions_legacy;
+
+DROP TABLE transactions_legacy;
@@ -0,0 +1,5 @@
+-- Keyset pagination of a wallet's history orders by (created_at, id); with id in the index the
+-- page predicate and ORDER BY are served by one index range scan.
+CREATE INDEX idx_transactions_wallet_id_created_at_id ON transactions(wallet_id, created_at DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_transactions_wallet_id_created_at;
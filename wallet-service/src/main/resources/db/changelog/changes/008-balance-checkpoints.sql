@@ -0,0 +1,13 @@
+-- Total wallet balance (wallet row plus stripes) as of checkpoint_at, written periodically for active wallets.
+-- A point-in-time balance is the nearest checkpoint adjusted by the ledger rows between it and the requested time.
+CREATE TABLE IF NOT EXISTS wallet_balance_checkpoints (
+                                wallet_id UUID NOT NULL REFERENCES wallets(id) ON DELETE CASCADE,
+                                checkpoint_at TIMESTAMP NOT NULL,
+                                balance BIGINT NOT NULL,
+                                PRIMARY KEY (wallet_id, checkpoint_at)
+);
+
+CREATE INDEX idx_wallet_balance_checkpoints_checkpoint_at ON wallet_balance_checkpoints(checkpoint_at);
+
+-- Lets the checkpoint job find the wallets active since its previous run without scanning whole partitions.
+CREATE INDEX idx_transactions_created_at_brin ON transactions USING BRIN (created_at);
@@ -0,0 +1,4 @@
+-- Ledger rows of striped wallets carry no previous/new balance: a stripe credit never sees the wallet total,
+-- so the columns stay NULL rather than hold a single stripe's or the wallet row's balance.
+ALTER TABLE transactions ALTER COLUMN previous_balance DROP NOT NULL;
+ALTER TABLE transactions ALTER COLUMN new_balance DROP NOT NULL;
@@ -0,0 +1,47 @@
+package ru.practicum.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import ru.practicum.wallet.Wallet;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KafkaConsumerConfigTest {
+
+    @Test
+    void isTransient_shouldDetectDatabaseOutageBehindListenerException() {
+        assertTrue(KafkaConsumerConfig.isTransient(new ListenerExecutionFailedException("Listener failed",
+                new CannotGetJdbcConnectionException("Connection refused", new SQLException("refused")))));
+        assertTrue(KafkaConsumerConfig.isTransient(new ObjectOptimisticLockingFailureException(Wallet.class, "id")));
+    }
+
+    @Test
+    void isTransient_shouldLeaveOtherFailuresToTheDlt() {
+        assertFalse(KafkaConsumerConfig.isTransient(new ListenerExecutionFailedException("Listener failed",
+                new DataIntegrityViolationException("duplicate key"))));
+        assertFalse(KafkaConsumerConfig.isTransient(new IllegalArgumentException("Unknown operation type")));
+    }
+
+    @Test
+    void requireReactiveProfile_shouldFail_whenReactiveModeRunsWithoutProfile() {
+        assertThrows(IllegalStateException.class,
+                () -> KafkaConsumerConfig.requireReactiveProfile("REACTIVE", new MockEnvironment()));
+    }
+
+    @Test
+    void requireReactiveProfile_shouldPass_forReactiveProfileOrOtherModes() {
+        MockEnvironment reactive = new MockEnvironment();
+        reactive.setActiveProfiles("reactive");
+        assertDoesNotThrow(() -> KafkaConsumerConfig.requireReactiveProfile("REACTIVE", reactive));
+        assertDoesNotThrow(() -> KafkaConsumerConfig.requireReactiveProfile("BATCH", new MockEnvironment()));
+    }
+}
@@ -0,0 +1,165 @@
+package ru.practicum.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsResult;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import ru.practicum.config.KafkaConsumerConfig;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsumerConcurrencyControllerTest {
+    private static final int PARTITIONS = 8;
+    private static final TopicPartition PARTITION = new TopicPartition("wallet_event", 0);
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+    private final Admin admin = mock(Admin.class);
+
+    private ConsumerConcurrencyController controller;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        controller = new ConsumerConcurrencyController(registry, admin, mock(ConsumerFactory.class),
+                new SimpleMeterRegistry(), 8, Duration.ofSeconds(30), 100, 2, 0.5, Duration.ofMinutes(2));
+    }
+
+    @Test
+    void nextConcurrency_shouldAddThread_whenSlowestPartitionDrainsTooSlowly() {
+        assertEquals(4, controller.nextConcurrency(1, 3, 120, false, 12));
+        assertEquals(4, controller.nextConcurrency(1, 3, Long.MAX_VALUE, true, 12));
+    }
+
+    @Test
+    void nextConcurrency_shouldRemoveThread_onlyUnderSustainedLowLoad() {
+        assertEquals(2, controller.nextConcurrency(1, 3, 0, true, 12));
+        assertEquals(3, controller.nextConcurrency(1, 3, 0, false, 12));
+        assertEquals(1, controller.nextConcurrency(1, 1, 0, true, 12));
+    }
+
+    @Test
+    void nextConcurrency_shouldHold_whenDrainTimeIsWithinTarget() {
+        assertEquals(3, controller.nextConcurrency(1, 3, 20, false, 12));
+    }
+
+    @Test
+    void nextConcurrency_shouldNotExceedInstanceShareOfPartitions() {
+        assertEquals(4, controller.nextConcurrency(1, 4, 120, false, 4));
+        assertEquals(4, controller.nextConcurrency(1, 6, 120, false, 4));
+    }
+
+    @Test
+    void nextConcurrency_shouldNotGoBelowContainerConcurrency() {
+        assertEquals(3, controller.nextConcurrency(3, 3, 0, true, 12));
+        assertEquals(3, controller.nextConcurrency(3, 3, 120, false, 2));
+    }
+
+    @Test
+    void slowestDrainSeconds_shouldDivideLagByProcessingRate() {
+        assertEquals(50, controller.slowestDrainSeconds(Map.of(PARTITION, 1_000L), Map.of(PARTITION, 900L),
+                Map.of(PARTITION, 500L), 10));
+    }
+
+    @Test
+    void slowestDrainSeconds_shouldTreatStalledPartitionAsNeverDraining() {
+        assertEquals(Long.MAX_VALUE, controller.slowestDrainSeconds(Map.of(PARTITION, 900L),
+                Map.of(PARTITION, 900L), Map.of(PARTITION, 200L), 10));
+    }
+
+    @Test
+    void slowestDrainSeconds_shouldIgnoreIdlePartitionsBelowStalledLag() {
+        assertEquals(0, controller.slowestDrainSeconds(Map.of(PARTITION, 900L), Map.of(PARTITION, 900L),
+                Map.of(PARTITION, 50L), 10));
+    }
+
+    @Test
+    void sample_shouldWaitForCooldown_afterScalingUp() {
+        assertEquals(2, controller.sample(START, 1, 2, 2, 1, offsets(0), offsets(1_000)));
+        assertEquals(3, controller.sample(START.plusSeconds(10), 1, 2, 2, 1, offsets(10), offsets(2_000)));
+        assertEquals(3, controller.sample(START.plusSeconds(20), 1, 3, 3, 1, offsets(20), offsets(3_000)));
+        assertEquals(4, controller.sample(START.plusSeconds(140), 1, 3, 3, 1, offsets(140), offsets(4_000)));
+    }
+
+    @Test
+    void sample_shouldKeepThreads_whenLagIsZeroButProduceRateNeedsThem() {
+        assertEquals(4, controller.sample(START, 1, 4, 4, 1, offsets(0), offsets(0)));
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(4, controller.sample(START.plusSeconds(10L * i), 1, 4, 4, 1, offsets(1_000L * i),
+                    offsets(1_000L * i)));
+        }
+    }
+
+    @Test
+    void sample_shouldRemoveThread_afterConsecutiveLowLoadSamples_andThenCoolDown() {
+        assertEquals(4, controller.sample(START, 1, 4, 4, 1, offsets(0), offsets(0)));
+        assertEquals(4, controller.sample(START.plusSeconds(10), 1, 4, 4, 1, offsets(1_000), offsets(1_000)));
+        assertEquals(4, controller.sample(START.plusSeconds(20), 1, 4, 4, 1, offsets(1_010), offsets(1_010)));
+        assertEquals(3, controller.sample(START.plusSeconds(30), 1, 4, 4, 1, offsets(1_020), offsets(1_020)));
+        assertEquals(3, controller.sample(START.plusSeconds(40), 1, 3, 3, 1, offsets(1_030), offsets(1_030)));
+        assertEquals(3, controller.sample(START.plusSeconds(50), 1, 3, 3, 1, offsets(1_040), offsets(1_040)));
+    }
+
+    @Test
+    void sample_shouldRestartLowLoadCount_whenLoadReturns() {
+        assertEquals(4, controller.sample(START, 1, 4, 4, 1, offsets(0), offsets(0)));
+        assertEquals(4, controller.sample(START.plusSeconds(10), 1, 4, 4, 1, offsets(1_000), offsets(1_000)));
+        assertEquals(4, controller.sample(START.plusSeconds(20), 1, 4, 4, 1, offsets(1_010), offsets(1_010)));
+        assertEquals(4, controller.sample(START.plusSeconds(30), 1, 4, 4, 1, offsets(2_010), offsets(2_010)));
+        assertEquals(4, controller.sample(START.plusSeconds(40), 1, 4, 4, 1, offsets(2_020), offsets(2_020)));
+    }
+
+    @Test
+    void sample_shouldStopAtInstanceShare_whenSeveralInstancesConsume() {
+        assertEquals(2, controller.sample(START, 1, 2, 8, 4, offsets(0), offsets(1_000)));
+        assertEquals(2, controller.sample(START.plusSeconds(10), 1, 2, 8, 4, offsets(10), offsets(2_000)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void adjust_shouldNotSample_whileGroupIsRebalancing() {
+        ConcurrentMessageListenerContainer<String, KafkaWalletEvent> container =
+                mock(ConcurrentMessageListenerContainer.class);
+        when(container.getContainerProperties()).thenReturn(new ContainerProperties("wallet_event"));
+        when(container.isRunning()).thenReturn(true);
+        when(registry.getListenerContainers()).thenReturn(List.of(container));
+        DescribeConsumerGroupsResult groups = mock(DescribeConsumerGroupsResult.class);
+        when(groups.describedGroups()).thenReturn(Map.of(KafkaConsumerConfig.GROUP_ID, KafkaFuture.completedFuture(
+                new ConsumerGroupDescription(KafkaConsumerConfig.GROUP_ID, false, List.of(), "",
+                        ConsumerGroupState.PREPARING_REBALANCE, null))));
+        when(admin.describeConsumerGroups(any())).thenReturn(groups);
+
+        controller.adjust();
+
+        verify(admin, never()).listConsumerGroupOffsets(any(String.class));
+        verify(container, never()).getConcurrency();
+    }
+
+    private static Map<TopicPartition, Long> offsets(long offset) {
+        return IntStream.range(0, PARTITIONS)
+                .mapToObj(partition -> new TopicPartition("wallet_event", partition))
+                .collect(Collectors.toMap(Function.identity(), partition -> offset));
+    }
+}
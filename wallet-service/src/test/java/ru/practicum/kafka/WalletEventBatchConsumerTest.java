@@ -0,0 +1,59 @@
+package ru.practicum.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.transaction.RecentOperations;
+import ru.practicum.wallet.WalletBatchService;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class WalletEventBatchConsumerTest {
+
+    @Mock
+    private WalletBatchService walletBatchService;
+
+    @Mock
+    private RecentOperations recentOperations;
+
+    @InjectMocks
+    private WalletEventBatchConsumer consumer;
+
+    @Test
+    void processWalletOperations_shouldApplyRecordsBeforeUndeserializableOneAndReportItsIndex() {
+        KafkaWalletEvent first = event();
+        KafkaWalletEvent second = event();
+        List<ConsumerRecord<String, KafkaWalletEvent>> records = List.of(
+                record(0, first), record(1, second), record(2, null), record(3, event()));
+
+        BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.processWalletOperations(records));
+
+        assertEquals(2, failure.getIndex());
+        verify(walletBatchService).applyEvents(List.of(first, second));
+    }
+
+    private ConsumerRecord<String, KafkaWalletEvent> record(long offset, KafkaWalletEvent event) {
+        return new ConsumerRecord<>("wallet_event", 0, offset, null, event);
+    }
+
+    private KafkaWalletEvent event() {
+        return KafkaWalletEvent.builder()
+                .walletId(UUID.randomUUID())
+                .operationType(WalletOperationType.DEPOSIT)
+                .amount(100L)
+                .operationTrackId(UUID.randomUUID())
+                .build();
+    }
+}
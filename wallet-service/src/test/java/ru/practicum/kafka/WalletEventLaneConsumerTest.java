@@ -0,0 +1,139 @@
+package ru.practicum.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import ru.practicum.enums.WalletOperationType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WalletEventLaneConsumerTest {
+
+    @Mock
+    private WalletEventHandler eventHandler;
+
+    @Mock
+    private ConsumerRecordRecoverer deadLetters;
+
+    private WalletLanes lanes;
+
+    private WalletEventLaneConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        lanes = new WalletLanes(4, 100, false);
+        consumer = new WalletEventLaneConsumer(eventHandler, lanes, deadLetters, 3, Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        lanes.shutdown();
+    }
+
+    @Test
+    void processWalletOperation_shouldKeepPerWalletOrderAndAckEachRecord() throws InterruptedException {
+        UUID walletId = UUID.randomUUID();
+        List<KafkaWalletEvent> events = List.of(event(walletId), event(walletId), event(walletId));
+        List<UUID> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch acked = new CountDownLatch(events.size());
+        Acknowledgment acknowledgment = acked::countDown;
+        doAnswer(invocation -> handled.add(invocation.<KafkaWalletEvent>getArgument(0).getOperationTrackId()))
+                .when(eventHandler).handle(any());
+
+        events.forEach(event -> consumer.processWalletOperation(record(event), acknowledgment));
+
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        assertEquals(events.stream().map(KafkaWalletEvent::getOperationTrackId).toList(), handled);
+    }
+
+    @Test
+    void processWalletOperation_shouldNotHoldUpOtherWallets_whileOneIsRetryingTransientFailure()
+            throws InterruptedException {
+        KafkaWalletEvent failing = event(UUID.randomUUID());
+        KafkaWalletEvent other = event(otherLaneWallet(failing.getWalletId()));
+        CountDownLatch failingAcked = new CountDownLatch(1);
+        CountDownLatch otherAcked = new CountDownLatch(1);
+        doThrow(new CannotGetJdbcConnectionException("DB down"))
+                .doThrow(new CannotGetJdbcConnectionException("DB down"))
+                .doNothing()
+                .when(eventHandler).handle(failing);
+
+        consumer.processWalletOperation(record(failing), failingAcked::countDown);
+        consumer.processWalletOperation(record(other), otherAcked::countDown);
+
+        assertTrue(otherAcked.await(5, TimeUnit.SECONDS));
+        assertTrue(failingAcked.await(5, TimeUnit.SECONDS));
+        verify(eventHandler, times(3)).handle(failing);
+        verifyNoInteractions(deadLetters);
+    }
+
+    @Test
+    void processWalletOperation_shouldDeadLetterNonTransientFailure_withoutRetrying() throws InterruptedException {
+        KafkaWalletEvent poison = event(UUID.randomUUID());
+        ConsumerRecord<String, KafkaWalletEvent> record = record(poison);
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("value too long");
+        CountDownLatch acked = new CountDownLatch(1);
+        doThrow(failure).when(eventHandler).handle(poison);
+
+        consumer.processWalletOperation(record, acked::countDown);
+
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        verify(eventHandler, times(1)).handle(poison);
+        verify(deadLetters).accept(same(record), same(failure));
+    }
+
+    @Test
+    void processWalletOperation_shouldDeadLetterTransientFailure_onceAttemptsRunOut() throws InterruptedException {
+        KafkaWalletEvent event = event(UUID.randomUUID());
+        ConsumerRecord<String, KafkaWalletEvent> record = record(event);
+        CountDownLatch acked = new CountDownLatch(1);
+        doThrow(new CannotGetJdbcConnectionException("DB down")).when(eventHandler).handle(event);
+
+        consumer.processWalletOperation(record, acked::countDown);
+
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        verify(eventHandler, times(3)).handle(event);
+        verify(deadLetters).accept(same(record), any(CannotGetJdbcConnectionException.class));
+    }
+
+    private UUID otherLaneWallet(UUID walletId) {
+        UUID candidate = UUID.randomUUID();
+        while (Math.floorMod(candidate.hashCode(), 4) == Math.floorMod(walletId.hashCode(), 4)) {
+            candidate = UUID.randomUUID();
+        }
+        return candidate;
+    }
+
+    private static ConsumerRecord<String, KafkaWalletEvent> record(KafkaWalletEvent event) {
+        return new ConsumerRecord<>("wallet_event", 0, 0L, event.getWalletId().toString(), event);
+    }
+
+    private KafkaWalletEvent event(UUID walletId) {
+        return KafkaWalletEvent.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.DEPOSIT)
+                .amount(100L)
+                .operationTrackId(UUID.randomUUID())
+                .build();
+    }
+}
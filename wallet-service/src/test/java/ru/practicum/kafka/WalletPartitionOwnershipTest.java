@@ -0,0 +1,130 @@
+package ru.practicum.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.practicum.transaction.RecentOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WalletPartitionOwnershipTest {
+    private static final int PARTITIONS = 4;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Consumer<?, ?> consumer;
+
+    private final RecentOperations recentOperations = new RecentOperations(100);
+
+    private WalletPartitionOwnership ownership;
+
+    @BeforeEach
+    void setUp() {
+        ownership = new WalletPartitionOwnership(recentOperations, jdbcTemplate, Duration.ofMinutes(5), 1000);
+        lenient().when(consumer.partitionsFor("wallet_event")).thenReturn(IntStream.range(0, PARTITIONS)
+                .mapToObj(partition -> new PartitionInfo("wallet_event", partition, null, null, null))
+                .toList());
+    }
+
+    @Test
+    void partitionOf_shouldMatchProducerPartitioner() {
+        for (int i = 0; i < 50; i++) {
+            UUID walletId = UUID.randomUUID();
+            assertEquals(Utils.toPositive(Utils.murmur2(walletId.toString().getBytes(StandardCharsets.UTF_8))) % 12,
+                    WalletPartitionOwnership.partitionOf(walletId, 12));
+        }
+    }
+
+    @Test
+    void onPartitionsAssigned_shouldWarmOnlyAssignedPartitions() throws Exception {
+        UUID owned = walletOn(1);
+        UUID foreign = walletOn(2);
+        UUID ownedTrackId = UUID.randomUUID();
+        UUID foreignTrackId = UUID.randomUUID();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(owned, ownedTrackId));
+            handler.processRow(row(foreign, foreignTrackId));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Timestamp.class), anyLong());
+
+        ownership.onPartitionsAssigned(consumer, List.of(new TopicPartition("wallet_event", 1)));
+
+        assertTrue(recentOperations.contains(ownedTrackId));
+        assertFalse(recentOperations.contains(foreignTrackId));
+    }
+
+    @Test
+    void onPartitionsAssigned_shouldBoundWarmUpPerPartition() throws Exception {
+        ownership = new WalletPartitionOwnership(recentOperations, jdbcTemplate, Duration.ofMinutes(5), 1);
+        UUID walletId = walletOn(1);
+        UUID latestTrackId = UUID.randomUUID();
+        UUID olderTrackId = UUID.randomUUID();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(walletId, latestTrackId));
+            handler.processRow(row(walletId, olderTrackId));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Timestamp.class), eq(4L));
+
+        ownership.onPartitionsAssigned(consumer, List.of(new TopicPartition("wallet_event", 1)));
+
+        assertTrue(recentOperations.contains(latestTrackId));
+        assertFalse(recentOperations.contains(olderTrackId));
+    }
+
+    @Test
+    void onPartitionsAssigned_shouldSkipWarmUp_forOtherTopics() {
+        ownership.onPartitionsAssigned(consumer, List.of(new TopicPartition("wallet_event-retry", 0)));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void onPartitionsAssigned_shouldNotFail_whenWarmUpFails() {
+        doThrow(new IllegalStateException("DB down"))
+                .when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Timestamp.class), anyLong());
+
+        assertDoesNotThrow(() ->
+                ownership.onPartitionsAssigned(consumer, List.of(new TopicPartition("wallet_event", 3))));
+    }
+
+    private static UUID walletOn(int partition) {
+        while (true) {
+            UUID walletId = UUID.randomUUID();
+            if (WalletPartitionOwnership.partitionOf(walletId, PARTITIONS) == partition) {
+                return walletId;
+            }
+        }
+    }
+
+    private static ResultSet row(UUID walletId, UUID operationTrackId) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("wallet_id", UUID.class)).thenReturn(walletId);
+        lenient().when(rs.getObject("operation_track_id", UUID.class)).thenReturn(operationTrackId);
+        return rs;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.transaction;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.enums.WalletOperationType;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TransactionController.class)
+class TransactionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionHistoryService historyService;
+
+    @Test
+    void getTransactions_shouldReturnPage() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        TransactionDto transaction = TransactionDto.builder()
+                .id(UUID.randomUUID())
+                .walletId(walletId)
+                .operationType(WalletOperationType.DEPOSIT)
+                .amount(100L)
+                .createdAt(Instant.now())
+                .build();
+        String cursor = TransactionCursor.of(transaction).encode();
+
+        when(historyService.getPage(eq(walletId), any(TransactionCursor.class), eq(1000)))
+                .thenReturn(TransactionPageDto.builder()
+                        .transactions(List.of(transaction))
+                        .nextCursor(cursor)
+                        .build());
+
+        mockMvc.perform(get("/api/v1/wallets/{walletId}/transactions", walletId)
+                        .param("cursor", cursor)
+                        .param("limit", "5000")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].amount").value(100L))
+                .andExpect(jsonPath("$.nextCursor").value(cursor));
+    }
+
+    @Test
+    void getTransactions_shouldRejectMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/wallets/{walletId}/transactions", UUID.randomUUID())
+                        .param("cursor", "not-a-cursor")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(historyService);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.practicum.transaction;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.NotFoundException;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.wallet.Wallet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import(TransactionHistoryService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class TransactionHistoryServiceTest {
+
+    @Autowired
+    private TransactionHistoryService historyService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void getPage_shouldWalkHistoryNewestFirst() {
+        Wallet wallet = saveWallet();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Transaction oldest = saveTransaction(wallet, now.minusSeconds(20));
+        Transaction middle = saveTransaction(wallet, now.minusSeconds(10));
+        Transaction newest = saveTransaction(wallet, now);
+        saveTransaction(saveWallet(), now);
+
+        TransactionPageDto first = historyService.getPage(wallet.getId(), null, 2);
+        assertThat(first.getTransactions()).extracting(TransactionDto::getId)
+                .containsExactly(newest.getId(), middle.getId());
+        assertThat(first.getNextCursor()).isNotNull();
+
+        TransactionPageDto second = historyService.getPage(wallet.getId(),
+                TransactionCursor.valueOf(first.getNextCursor()), 2);
+        assertThat(second.getTransactions()).extracting(TransactionDto::getId)
+                .containsExactly(oldest.getId());
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void export_shouldWriteOneJsonLinePerTransaction() {
+        Wallet wallet = saveWallet();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        saveTransaction(wallet, now.minusSeconds(10));
+        Transaction newest = saveTransaction(wallet, now);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        historyService.export(wallet.getId(), null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains(newest.getId().toString());
+    }
+
+    @Test
+    void getPage_shouldThrowNotFound_whenWalletIsUnknown() {
+        assertThatThrownBy(() -> historyService.getPage(UUID.randomUUID(), null, 10))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    private Wallet saveWallet() {
+        return entityManager.persistAndFlush(Wallet.builder()
+                .id(UUID.randomUUID())
+                .balance(0L)
+                .currency("RUB")
+                .build());
+    }
+
+    private Transaction saveTransaction(Wallet wallet, Instant createdAt) {
+        return entityManager.persistAndFlush(Transaction.builder()
+                .id(UUID.randomUUID())
+                .wallet(wallet)
+                .walletOperationType(WalletOperationType.DEPOSIT)
+                .amount(100L)
+                .previousBalance(0L)
+                .newBalance(100L)
+                .operationTrackId(UUID.randomUUID())
+                .createdAt(createdAt)
+                .build());
+    }
+}
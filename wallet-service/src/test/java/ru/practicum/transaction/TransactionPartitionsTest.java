@@ -0,0 +1,89 @@
+package ru.practicum.transaction;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionPartitionsTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionPartitions partitions;
+
+    @BeforeEach
+    void setUp() {
+        partitions = new TransactionPartitions(jdbcTemplate, transactionTemplate, 3, Duration.ofDays(90), true);
+        lenient().doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+        lenient().doCallRealMethod().when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void maintain_shouldCreateUpcomingAndRetireExpiredPartitions() {
+        YearMonth current = YearMonth.from(LocalDate.now(ZoneOffset.UTC));
+        String expired = partition(current.minusMonths(6));
+        String retained = partition(current.minusMonths(1));
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyLong())).thenReturn(true);
+        when(jdbcTemplate.queryForObject(contains("ensure_transactions_partitions"), eq(Integer.class), eq(3)))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of(expired, retained, partition(current)));
+
+        partitions.maintain();
+
+        verify(jdbcTemplate).update(contains("FROM " + expired + " GROUP BY"), any(Timestamp.class), any(Timestamp.class));
+        verify(jdbcTemplate).execute("ALTER TABLE transactions DETACH PARTITION " + expired);
+        verify(jdbcTemplate).execute("DROP TABLE " + expired);
+        verify(jdbcTemplate, never()).execute(contains(retained));
+    }
+
+    @Test
+    void maintain_shouldSkipWork_whenAnotherInstanceHoldsTheLock() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyLong())).thenReturn(false);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of(partition(YearMonth.of(2000, 1))));
+
+        partitions.maintain();
+
+        verify(jdbcTemplate, never()).queryForObject(contains("ensure_transactions_partitions"), eq(Integer.class), any());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void monthOf_shouldIgnoreForeignTables() {
+        assertEquals(Optional.of(YearMonth.of(2026, 3)), TransactionPartitions.monthOf("transactions_p202603"));
+        assertEquals(Optional.empty(), TransactionPartitions.monthOf("transactions_legacy"));
+    }
+
+    private String partition(YearMonth month) {
+        return TransactionPartitions.PARTITION_PREFIX + month.format(DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+}
@@ -0,0 +1,159 @@
+package ru.practicum.wallet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import ru.practicum.LowBalanceException;
+import ru.practicum.NotFoundException;
+import ru.practicum.enums.OperationStatus;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
+import ru.practicum.kafka.KafkaWalletEvent;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveWalletServiceTest {
+
+    @Mock
+    private ReactiveWalletRepository walletRepository;
+
+    @Mock
+    private TransactionalOperator reactiveTransactionalOperator;
+
+    @Mock
+    private WalletService walletService;
+
+    @InjectMocks
+    private ReactiveWalletService reactiveWalletService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(reactiveTransactionalOperator.transactional(any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void getWalletInfo_shouldFailWithNotFound_whenWalletIsMissing() {
+        UUID walletId = UUID.randomUUID();
+        when(walletRepository.findInfo(walletId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveWalletService.getWalletInfo(walletId))
+                .expectError(NotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void applyEvent_shouldRecordAndReturnSuccess() {
+        KafkaWalletEvent event = event(WalletOperationType.DEPOSIT, 100L);
+        when(walletRepository.applyDelta(event.getWalletId(), 100L))
+                .thenReturn(Mono.just(row(600L, 2L, 0)));
+        when(walletRepository.insertTransactionIfAbsent(event, 500L, 600L)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(reactiveWalletService.applyEvent(event))
+                .assertNext(outcome -> {
+                    assertEquals(OperationStatus.SUCCESS, outcome.getStatus());
+                    assertEquals(600L, outcome.getBalance());
+                    assertEquals(2L, outcome.getVersion());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void applyEvent_shouldRollBackDuplicate() {
+        KafkaWalletEvent event = event(WalletOperationType.DEPOSIT, 100L);
+        when(walletRepository.applyDelta(event.getWalletId(), 100L))
+                .thenReturn(Mono.just(row(600L, 2L, 0)));
+        when(walletRepository.insertTransactionIfAbsent(event, 500L, 600L)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(reactiveWalletService.applyEvent(event))
+                .verifyComplete();
+    }
+
+    @Test
+    void applyEvent_shouldDenyWithCurrentState_whenBalanceDoesNotCover() {
+        KafkaWalletEvent event = event(WalletOperationType.WITHDRAW, 1000L);
+        when(walletRepository.applyDelta(event.getWalletId(), -1000L)).thenReturn(Mono.empty());
+        when(walletRepository.operationExists(event.getOperationTrackId())).thenReturn(Mono.just(false));
+        when(walletRepository.findWallet(event.getWalletId())).thenReturn(Mono.just(row(500L, 4L, 0)));
+
+        StepVerifier.create(reactiveWalletService.applyEvent(event))
+                .assertNext(outcome -> {
+                    assertEquals(OperationStatus.DENIED, outcome.getStatus());
+                    assertEquals(500L, outcome.getBalance());
+                })
+                .verifyComplete();
+        verifyNoInteractions(walletService);
+    }
+
+    @Test
+    void applyEvent_shouldDenyWithoutState_whenWalletIsMissing() {
+        KafkaWalletEvent event = event(WalletOperationType.DEPOSIT, 100L);
+        when(walletRepository.applyDelta(event.getWalletId(), 100L)).thenReturn(Mono.empty());
+        when(walletRepository.operationExists(event.getOperationTrackId())).thenReturn(Mono.just(false));
+        when(walletRepository.findWallet(event.getWalletId())).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveWalletService.applyEvent(event))
+                .assertNext(outcome -> {
+                    assertEquals(OperationStatus.DENIED, outcome.getStatus());
+                    assertNull(outcome.getBalance());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void applyEvent_shouldHandOverToBlockingService_whenStripesCoverWithdrawal() {
+        KafkaWalletEvent event = event(WalletOperationType.WITHDRAW, 300L);
+        KafkaWalletBalanceEvent rejection = KafkaWalletBalanceEvent.builder()
+                .walletId(event.getWalletId())
+                .status(OperationStatus.DENIED)
+                .build();
+        when(walletRepository.applyDelta(event.getWalletId(), -300L)).thenReturn(Mono.empty());
+        when(walletRepository.operationExists(event.getOperationTrackId())).thenReturn(Mono.just(false));
+        when(walletRepository.findWallet(event.getWalletId())).thenReturn(Mono.just(row(500L, 4L, 8)));
+        doThrow(new LowBalanceException("Not enough balance for processing"))
+                .when(walletService).updateBalanceFromEvent(event);
+        when(walletService.rejectionOf(event)).thenReturn(rejection);
+
+        StepVerifier.create(reactiveWalletService.applyEvent(event))
+                .expectNext(rejection)
+                .verifyComplete();
+    }
+
+    @Test
+    void applyEvent_shouldHandOverToBlockingService_whenDepositTargetsStripedWallet() {
+        KafkaWalletEvent event = event(WalletOperationType.DEPOSIT, 100L);
+        when(walletRepository.applyDelta(event.getWalletId(), 100L)).thenReturn(Mono.empty());
+        when(walletRepository.operationExists(event.getOperationTrackId())).thenReturn(Mono.just(false));
+        when(walletRepository.findWallet(event.getWalletId())).thenReturn(Mono.just(row(500L, 4L, 8)));
+
+        StepVerifier.create(reactiveWalletService.applyEvent(event))
+                .verifyComplete();
+        verify(walletService).updateBalanceFromEvent(event);
+        verify(walletRepository, never()).insertTransactionIfAbsent(any(), anyLong(), anyLong());
+    }
+
+    private static ReactiveWalletRepository.WalletRow row(long balance, long version, int stripeCount) {
+        return new ReactiveWalletRepository.WalletRow(new BalanceChange(balance, version, "RUB"), stripeCount);
+    }
+
+    private static KafkaWalletEvent event(WalletOperationType type, long amount) {
+        return KafkaWalletEvent.builder()
+                .walletId(UUID.randomUUID())
+                .operationType(type)
+                .amount(amount)
+                .operationTrackId(UUID.randomUUID())
+                .build();
+    }
+}
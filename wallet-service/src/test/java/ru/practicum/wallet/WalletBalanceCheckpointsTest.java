@@ -0,0 +1,104 @@
+package ru.practicum.wallet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.BadRequestException;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.transaction.Transaction;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import(WalletBalanceCheckpoints.class)
+@TestPropertySource(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "wallet.transactions.retention.period=30d"
+})
+class WalletBalanceCheckpointsTest {
+
+    @Autowired
+    private WalletBalanceCheckpoints checkpoints;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS wallet_balance_checkpoints (wallet_id UUID NOT NULL, "
+                + "checkpoint_at TIMESTAMP NOT NULL, balance BIGINT NOT NULL, PRIMARY KEY (wallet_id, checkpoint_at))");
+        wallet = entityManager.persistAndFlush(Wallet.builder()
+                .id(UUID.randomUUID())
+                .balance(250L)
+                .currency("RUB")
+                .build());
+        // 0 -> +100 (t-30m) -> +200 (t-20m) -> -50 (t-10m) = 250
+        saveTransaction(WalletOperationType.DEPOSIT, 100L, now.minus(Duration.ofMinutes(30)));
+        saveTransaction(WalletOperationType.DEPOSIT, 200L, now.minus(Duration.ofMinutes(20)));
+        saveTransaction(WalletOperationType.WITHDRAW, 50L, now.minus(Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void balanceAsOf_shouldRollCurrentBalanceBack_whenThereAreNoCheckpoints() {
+        assertThat(checkpoints.balanceAsOf(wallet.getId(), now.minus(Duration.ofMinutes(15)), 250L)).isEqualTo(300L);
+        assertThat(checkpoints.balanceAsOf(wallet.getId(), now.minus(Duration.ofHours(1)), 250L)).isZero();
+    }
+
+    @Test
+    void balanceAsOf_shouldRollEarlierCheckpointForward() {
+        saveCheckpoint(now.minus(Duration.ofMinutes(25)), 100L);
+
+        assertThat(checkpoints.balanceAsOf(wallet.getId(), now.minus(Duration.ofMinutes(5)), 0L)).isEqualTo(250L);
+    }
+
+    @Test
+    void balanceAsOf_shouldRollLaterCheckpointBack_whenAsOfPrecedesAllCheckpoints() {
+        saveCheckpoint(now.minus(Duration.ofMinutes(15)), 300L);
+
+        assertThat(checkpoints.balanceAsOf(wallet.getId(), now.minus(Duration.ofMinutes(25)), 0L)).isEqualTo(100L);
+    }
+
+    @Test
+    void balanceAsOf_shouldRejectTimesPastRetention() {
+        assertThatThrownBy(() -> checkpoints.balanceAsOf(wallet.getId(), now.minus(Duration.ofDays(31)), 250L))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private void saveTransaction(WalletOperationType type, long amount, Instant createdAt) {
+        entityManager.persistAndFlush(Transaction.builder()
+                .id(UUID.randomUUID())
+                .wallet(wallet)
+                .walletOperationType(type)
+                .amount(amount)
+                .previousBalance(0L)
+                .newBalance(0L)
+                .operationTrackId(UUID.randomUUID())
+                .createdAt(createdAt)
+                .build());
+    }
+
+    private void saveCheckpoint(Instant at, long balance) {
+        jdbcTemplate.update("INSERT INTO wallet_balance_checkpoints (wallet_id, checkpoint_at, balance) VALUES (?, ?, ?)",
+                wallet.getId(), Timestamp.from(at), balance);
+    }
+}
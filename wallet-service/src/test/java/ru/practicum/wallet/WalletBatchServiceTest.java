@@ -0,0 +1,110 @@
+package ru.practicum.wallet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import ru.practicum.enums.OperationStatus;
+import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
+import ru.practicum.kafka.KafkaWalletEvent;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({WalletBatchService.class, WalletStripes.class})
+@RecordApplicationEvents
+@TestPropertySource(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class WalletBatchServiceTest {
+
+    @Autowired
+    private WalletBatchService walletBatchService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    void applyEvents_shouldNetPerWalletAndPublishEveryOutcome() {
+        Wallet first = saveWallet(100L);
+        Wallet second = saveWallet(50L);
+        UUID unknownWalletId = UUID.randomUUID();
+
+        KafkaWalletEvent deposit = event(first.getId(), WalletOperationType.DEPOSIT, 100L);
+        KafkaWalletEvent withdraw = event(first.getId(), WalletOperationType.WITHDRAW, 150L);
+        KafkaWalletEvent overdraw = event(second.getId(), WalletOperationType.WITHDRAW, 80L);
+        KafkaWalletEvent unknown = event(unknownWalletId, WalletOperationType.DEPOSIT, 10L);
+
+        walletBatchService.applyEvents(List.of(deposit, withdraw, deposit, overdraw, unknown));
+
+        assertThat(balanceOf(first.getId())).isEqualTo(50L);
+        assertThat(versionOf(first.getId())).isEqualTo(first.getVersion() + 2);
+        assertThat(balanceOf(second.getId())).isEqualTo(50L);
+        assertThat(versionOf(second.getId())).isEqualTo(second.getVersion());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions", Long.class)).isEqualTo(2L);
+
+        List<KafkaWalletBalanceEvent> outcomes = applicationEvents.stream(KafkaWalletBalanceEvent.class).toList();
+        assertThat(outcomes).extracting(KafkaWalletBalanceEvent::getStatus).containsExactly(
+                OperationStatus.SUCCESS, OperationStatus.SUCCESS, OperationStatus.DENIED, OperationStatus.DENIED);
+        assertThat(outcomes).extracting(KafkaWalletBalanceEvent::getBalance).containsExactly(200L, 50L, 50L, null);
+        assertThat(outcomes.get(1).getVersion()).isEqualTo(first.getVersion() + 2);
+    }
+
+    @Test
+    void applyEvents_shouldSkipAlreadyAppliedOperations() {
+        Wallet wallet = saveWallet(100L);
+        KafkaWalletEvent deposit = event(wallet.getId(), WalletOperationType.DEPOSIT, 100L);
+
+        walletBatchService.applyEvents(List.of(deposit));
+        walletBatchService.applyEvents(List.of(deposit));
+
+        assertThat(balanceOf(wallet.getId())).isEqualTo(200L);
+        assertThat(applicationEvents.stream(KafkaWalletBalanceEvent.class)).hasSize(1);
+    }
+
+    private Wallet saveWallet(long balance) {
+        Wallet wallet = walletRepository.save(Wallet.builder()
+                .id(UUID.randomUUID())
+                .balance(balance)
+                .currency("RUB")
+                .build());
+        entityManager.flush();
+        return wallet;
+    }
+
+    private long balanceOf(UUID walletId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", Long.class, walletId);
+    }
+
+    private long versionOf(UUID walletId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM wallets WHERE id = ?", Long.class, walletId);
+    }
+
+    private KafkaWalletEvent event(UUID walletId, WalletOperationType type, long amount) {
+        return KafkaWalletEvent.builder()
+                .walletId(walletId)
+                .operationType(type)
+                .amount(amount)
+                .operationTrackId(UUID.randomUUID())
+                .build();
+    }
+}
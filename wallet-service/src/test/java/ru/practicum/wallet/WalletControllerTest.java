@@ -8,13 +8,19 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.NotFoundException;
 import ru.practicum.redis.WalletCacheDto;
 
+import java.util.List;
 import java.util.UUID;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(WalletController.class)
+@WebMvcTest({WalletController.class, WalletLookupController.class})
 class WalletControllerTest {
 
     @Autowired
@@ -51,4 +57,36 @@ class WalletControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(content().string("Wallet with id: " + walletId + " not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getWallets_shouldReturnFoundWallets() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        WalletCacheDto cacheDto = WalletCacheDto.builder()
+                .walletId(walletId)
+                .balance(1000L)
+                .currency("RUB")
+                .build();
+
+        when(walletService.getWalletsInfo(List.of(walletId, missingId))).thenReturn(List.of(cacheDto));
+
+        mockMvc.perform(get("/api/v1/wallets").param("ids", walletId.toString(), missingId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].walletId").value(walletId.toString()));
+    }
+
+    @Test
+    void setStripes_shouldRejectCountAboveLimit() throws Exception {
+        mockMvc.perform(put("/api/v1/wallets/{walletId}/stripes", UUID.randomUUID()).param("count", "1000"))
+                .andExpect(status().isBadRequest());
+
+        verify(walletService, never()).setStripeCount(any(), anyInt());
+    }
+
+    @Test
+    void setStripes_shouldRejectNegativeCount() throws Exception {
+        mockMvc.perform(put("/api/v1/wallets/{walletId}/stripes", UUID.randomUUID()).param("count", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+}
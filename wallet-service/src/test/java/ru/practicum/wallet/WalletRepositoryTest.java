@@ -6,6 +6,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.TestPropertySource;
 
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -43,4 +44,26 @@ class WalletRepositoryTest {
         assertThat(found.getBalance()).isEqualTo(1000L);
         assertThat(found.getCurrency()).isEqualTo("RUB");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldFindAllWalletsByIdArray() {
+        Wallet first = walletRepository.save(Wallet.builder()
+                .id(UUID.randomUUID())
+                .balance(100L)
+                .currency("RUB")
+                .build());
+        Wallet second = walletRepository.save(Wallet.builder()
+                .id(UUID.randomUUID())
+                .balance(200L)
+                .currency("RUB")
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Wallet> found = walletRepository.findAllByIds(
+                new UUID[]{first.getId(), second.getId(), UUID.randomUUID()});
+
+        assertThat(found).extracting(Wallet::getId)
+                .containsExactlyInAnyOrder(first.getId(), second.getId());
+    }
+}
@@ -4,22 +4,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import ru.practicum.LowBalanceException;
 import ru.practicum.NotFoundException;
+import ru.practicum.enums.OperationStatus;
 import ru.practicum.enums.WalletOperationType;
+import ru.practicum.kafka.KafkaWalletBalanceEvent;
 import ru.practicum.kafka.KafkaWalletEvent;
 import ru.practicum.redis.WalletCacheDto;
 import ru.practicum.transaction.TransactionRepository;
 
 import java.lang.reflect.Method;
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,9 +39,18 @@ class WalletServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private WalletStripes walletStripes;
+
+    @Mock
+    private WalletBalanceCheckpoints balanceCheckpoints;
+
     @Mock
     private WalletMapper walletMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private WalletService walletService;
 
@@ -56,15 +73,15 @@ class WalletServiceTest {
                 .version(1L)
                 .build();
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(transactionRepository.existsByOperationTrackId(operationTrackId)).thenReturn(false);
+        when(walletRepository.applyDelta(walletId, 100L)).thenReturn(Optional.of(new BalanceChange(600L, 2L, "RUB")));
+        when(walletRepository.getReferenceById(walletId)).thenReturn(wallet);
+        when(transactionRepository.insertIfAbsent(any())).thenReturn(true);
 
         walletService.updateBalanceFromEvent(event);
 
-        verify(walletRepository).save(wallet);
-        assertEquals(600L, wallet.getBalance()); // 500 + 100
+        verify(walletRepository, never()).saveAndFlush(any());
 
-        verify(transactionRepository).save(argThat(transaction ->
+        verify(transactionRepository).insertIfAbsent(argThat(transaction ->
                 transaction.getWallet().equals(wallet) &&
                         transaction.getWalletOperationType() == WalletOperationType.DEPOSIT &&
                         transaction.getAmount().equals(100L) &&
@@ -72,6 +89,12 @@ class WalletServiceTest {
                         transaction.getNewBalance().equals(600L) &&
                         transaction.getOperationTrackId().equals(operationTrackId)
         ));
+        verify(eventPublisher).publishEvent(argThat((Object published) ->
+                published instanceof KafkaWalletBalanceEvent balanceEvent &&
+                        balanceEvent.getWalletId().equals(walletId) &&
+                        balanceEvent.getBalance().equals(600L) &&
+                        balanceEvent.getVersion().equals(2L)
+        ));
     }
 
     @Test
@@ -93,16 +116,77 @@ class WalletServiceTest {
                 .version(1L)
                 .build();
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(transactionRepository.existsByOperationTrackId(operationTrackId)).thenReturn(false);
+        when(walletRepository.applyDelta(walletId, -100L)).thenReturn(Optional.of(new BalanceChange(400L, 2L, "RUB")));
+        when(walletRepository.getReferenceById(walletId)).thenReturn(wallet);
+        when(transactionRepository.insertIfAbsent(any())).thenReturn(true);
 
         walletService.updateBalanceFromEvent(event);
 
-        verify(walletRepository).save(wallet);
-        assertEquals(400L, wallet.getBalance()); // 500 - 100
+        verify(transactionRepository).insertIfAbsent(argThat(transaction ->
+                transaction.getPreviousBalance().equals(500L) &&
+                        transaction.getNewBalance().equals(400L)
+        ));
+    }
+
+    @Test
+    void updateBalanceFromEvent_shouldCreditStripeForStripedDeposit() {
+        UUID walletId = UUID.randomUUID();
+        UUID operationTrackId = UUID.randomUUID();
+
+        KafkaWalletEvent event = KafkaWalletEvent.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.DEPOSIT)
+                .amount(100L)
+                .operationTrackId(operationTrackId)
+                .build();
+
+        when(walletStripes.stripeCount(walletId)).thenReturn(4);
+        when(walletStripes.credit(walletId, 100L)).thenReturn(Optional.of(300L));
+        when(walletRepository.getReferenceById(walletId)).thenReturn(Wallet.builder().id(walletId).build());
+        when(transactionRepository.insertIfAbsent(any())).thenReturn(true);
+
+        walletService.updateBalanceFromEvent(event);
 
-        verify(transactionRepository).save(argThat(transaction ->
-                transaction.getNewBalance().equals(400L)
+        verify(walletRepository, never()).applyDelta(any(), anyLong());
+        verify(transactionRepository).insertIfAbsent(argThat(transaction ->
+                transaction.getPreviousBalance() == null && transaction.getNewBalance() == null
+        ));
+        verify(eventPublisher).publishEvent(argThat((Object published) ->
+                published instanceof KafkaWalletBalanceEvent balanceEvent &&
+                        balanceEvent.getStatus() == OperationStatus.SUCCESS &&
+                        balanceEvent.getBalance() == null
+        ));
+    }
+
+    @Test
+    void updateBalanceFromEvent_shouldSweepStripes_whenStripedWithdrawLacksFunds() {
+        UUID walletId = UUID.randomUUID();
+
+        KafkaWalletEvent event = KafkaWalletEvent.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.WITHDRAW)
+                .amount(100L)
+                .operationTrackId(UUID.randomUUID())
+                .build();
+
+        when(walletStripes.stripeCount(walletId)).thenReturn(4);
+        when(walletRepository.applyDelta(walletId, -100L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new BalanceChange(50L, 3L, "RUB")));
+        when(walletStripes.sweep(walletId)).thenReturn(true);
+        when(walletRepository.getReferenceById(walletId)).thenReturn(Wallet.builder().id(walletId).build());
+        when(transactionRepository.insertIfAbsent(any())).thenReturn(true);
+
+        walletService.updateBalanceFromEvent(event);
+
+        verify(walletRepository, times(2)).applyDelta(walletId, -100L);
+        verify(transactionRepository).insertIfAbsent(argThat(transaction ->
+                transaction.getPreviousBalance() == null && transaction.getNewBalance() == null
+        ));
+        verify(eventPublisher).publishEvent(argThat((Object published) ->
+                published instanceof KafkaWalletBalanceEvent balanceEvent &&
+                        balanceEvent.getBalance().equals(50L) &&
+                        balanceEvent.getVersion().equals(3L)
         ));
     }
 
@@ -118,26 +202,21 @@ class WalletServiceTest {
                 .operationTrackId(operationTrackId)
                 .build();
 
-        Wallet wallet = Wallet.builder()
-                .id(walletId)
-                .balance(500L) // Меньше чем списание
-                .currency("RUB")
-                .version(1L)
-                .build();
-
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletRepository.applyDelta(walletId, -1000L)).thenReturn(Optional.empty()); // Баланс меньше списания
+        when(walletRepository.existsById(walletId)).thenReturn(true);
         when(transactionRepository.existsByOperationTrackId(operationTrackId)).thenReturn(false);
 
         assertThrows(LowBalanceException.class, () -> {
             walletService.updateBalanceFromEvent(event);
         });
 
-        verify(walletRepository, never()).save(any());
-        verify(transactionRepository, never()).save(any());
+        verify(walletRepository, never()).saveAndFlush(any());
+        verify(transactionRepository, never()).insertIfAbsent(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
-    void updateBalanceFromEvent_shouldSkipDuplicateOperation() {
+    void updateBalanceFromEvent_shouldRollBackDuplicateOperation() {
         UUID walletId = UUID.randomUUID();
         UUID operationTrackId = UUID.randomUUID();
 
@@ -148,13 +227,40 @@ class WalletServiceTest {
                 .operationTrackId(operationTrackId)
                 .build();
 
+        TransactionStatus status = mock(TransactionStatus.class);
+        when(walletRepository.applyDelta(walletId, 100L)).thenReturn(Optional.of(new BalanceChange(600L, 2L, "RUB")));
+        when(transactionRepository.insertIfAbsent(any())).thenReturn(false);
+
+        try (MockedStatic<TransactionAspectSupport> transactions = mockStatic(TransactionAspectSupport.class)) {
+            transactions.when(TransactionAspectSupport::currentTransactionStatus).thenReturn(status);
+
+            walletService.updateBalanceFromEvent(event);
+        }
+
+        verify(status).setRollbackOnly();
+        verify(transactionRepository, never()).existsByOperationTrackId(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void updateBalanceFromEvent_shouldNotRejectDuplicate_whenBalanceNoLongerCoversIt() {
+        UUID walletId = UUID.randomUUID();
+        UUID operationTrackId = UUID.randomUUID();
+
+        KafkaWalletEvent event = KafkaWalletEvent.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.WITHDRAW)
+                .amount(100L)
+                .operationTrackId(operationTrackId)
+                .build();
+
+        when(walletRepository.applyDelta(walletId, -100L)).thenReturn(Optional.empty());
         when(transactionRepository.existsByOperationTrackId(operationTrackId)).thenReturn(true);
 
         walletService.updateBalanceFromEvent(event);
 
-        verify(walletRepository, never()).findById(any());
-        verify(walletRepository, never()).save(any());
-        verify(transactionRepository, never()).save(any());
+        verify(walletRepository, never()).existsById(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -170,16 +276,17 @@ class WalletServiceTest {
                 .build();
 
         when(transactionRepository.existsByOperationTrackId(operationTrackId)).thenReturn(false);
-        when(walletRepository.findById(walletId)).thenReturn(Optional.empty());
+        when(walletRepository.applyDelta(walletId, 100L)).thenReturn(Optional.empty());
+        when(walletRepository.existsById(walletId)).thenReturn(false);
 
         assertThrows(NotFoundException.class, () -> {
             walletService.updateBalanceFromEvent(event);
         });
 
         verify(transactionRepository).existsByOperationTrackId(operationTrackId);
-        verify(walletRepository).findById(walletId);
-        verify(walletRepository, never()).save(any());
-        verify(transactionRepository, never()).save(any());
+        verify(walletRepository).applyDelta(walletId, 100L);
+        verify(walletRepository, never()).saveAndFlush(any());
+        verify(transactionRepository, never()).insertIfAbsent(any());
     }
 
     @Test
@@ -194,6 +301,56 @@ class WalletServiceTest {
         assertEquals(100, retryable.backoff().delay());
     }
 
+    @Test
+    void rejectionOf_shouldCarryCurrentWalletState() {
+        UUID walletId = UUID.randomUUID();
+        UUID operationTrackId = UUID.randomUUID();
+
+        KafkaWalletEvent event = KafkaWalletEvent.builder()
+                .walletId(walletId)
+                .operationType(WalletOperationType.WITHDRAW)
+                .amount(1000L)
+                .operationTrackId(operationTrackId)
+                .build();
+
+        Wallet wallet = Wallet.builder()
+                .id(walletId)
+                .balance(500L)
+                .currency("RUB")
+                .version(4L)
+                .build();
+
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+
+        KafkaWalletBalanceEvent rejection = walletService.rejectionOf(event);
+
+        assertEquals(OperationStatus.DENIED, rejection.getStatus());
+        assertEquals(operationTrackId, rejection.getOperationTrackId());
+        assertEquals(500L, rejection.getBalance());
+        assertEquals(4L, rejection.getVersion());
+    }
+
+    @Test
+    void getBalanceAsOf_shouldCountStripesInCurrentBalance() {
+        UUID walletId = UUID.randomUUID();
+        Instant asOf = Instant.now().minusSeconds(3600);
+        Wallet wallet = Wallet.builder()
+                .id(walletId)
+                .balance(500L)
+                .currency("RUB")
+                .stripeCount(4)
+                .build();
+
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletStripes.balance(walletId)).thenReturn(300L);
+        when(balanceCheckpoints.balanceAsOf(walletId, asOf, 800L)).thenReturn(650L);
+
+        WalletBalanceDto result = walletService.getBalanceAsOf(walletId, asOf);
+
+        assertEquals(650L, result.getBalance());
+        assertEquals("RUB", result.getCurrency());
+    }
+
     @Test
     void getWalletInfo_shouldReturnWalletCacheDto() {
         UUID walletId = UUID.randomUUID();